@@ -0,0 +1,24 @@
+package gr.xe.selenium.benchmarks;
+
+import gr.xe.selenium.pom.enums.LocalizationEnum;
+import gr.xe.selenium.utilities.LocalizationReader;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+
+/**
+ * Looking up a localized text, which every assertion on a message does.
+ *
+ * @author pkalogerop
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class LocalizationReaderBenchmark {
+
+    @Benchmark
+    public String getLocalizedText() {
+        return LocalizationReader.getLocalizedText(LocalizationEnum.SUCCESS_MESSAGE_AFTER_SAVING_FILTERS);
+    }
+}
@@ -0,0 +1,49 @@
+package gr.xe.selenium.benchmarks;
+
+import gr.xe.selenium.pom.enums.ResultsStateEnum;
+import gr.xe.selenium.utilities.SiteUrls;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openqa.selenium.By;
+
+/**
+ * Building the locators of our Page Object Models, which happens on every
+ * lookup.
+ *
+ * @author pkalogerop
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LocatorBenchmark {
+
+    private static final By CONSTANT_LOCATOR = By.cssSelector("[data-testid=filters-button]");
+
+    @Benchmark
+    public By constantLocator() {
+        return CONSTANT_LOCATOR;
+    }
+
+    @Benchmark
+    public By literalCssSelector() {
+        return By.cssSelector("[data-testid=filters-button]");
+    }
+
+    @Benchmark
+    public By enumCssSelector() {
+        return By.cssSelector(ResultsStateEnum.RESULTS.getCssSelector());
+    }
+
+    @Benchmark
+    public By concatenatedCssSelector() {
+        return By.cssSelector("div.grid-container a[href='" + SiteUrls.getBaseUrl()
+                + "property/s/poliseis-gis-oikopedon']");
+    }
+
+    @Benchmark
+    public By id() {
+        return By.id("save-search-btn");
+    }
+}
@@ -0,0 +1,38 @@
+package gr.xe.selenium.benchmarks;
+
+import gr.xe.selenium.utilities.PriceParser;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The price cleanup that <code>checkPriceFiltersTest</code> used to do inline
+ * (replace the euro sign and the dots, then <code>Integer.parseInt</code>)
+ * against {@link PriceParser}, which now parses every result of the page.
+ *
+ * @author pkalogerop
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PriceParsingBenchmark {
+
+    @Param({"723.000 \u20ac", "1.250.000 \u20ac"})
+    public String priceText;
+
+    @Benchmark
+    public int replaceAndParseInt() {
+        String euro = "\u20ac";
+        return Integer.parseInt(priceText.replace(euro, "").replace(".", "").trim());
+    }
+
+    @Benchmark
+    public long priceParser() {
+        return PriceParser.parse(priceText);
+    }
+}
@@ -0,0 +1,32 @@
+package gr.xe.selenium.benchmarks;
+
+import gr.xe.selenium.utilities.TestUser;
+import gr.xe.selenium.utilities.TestUserPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+
+/**
+ * Creating the test user, which reads our credentials file, against leasing
+ * one from the {@link TestUserPool}.
+ *
+ * @author pkalogerop
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TestUserBenchmark {
+
+    @Benchmark
+    public TestUser createTestUser() throws Exception {
+        return TestUser.createTestUser();
+    }
+
+    @Benchmark
+    public TestUser leaseFromPool() throws Exception {
+        try (TestUserPool.Lease lease = TestUserPool.getInstance().lease()) {
+            return lease.getTestUser();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package gr.xe.selenium.api;
+
+import java.io.IOException;
+
+/**
+ * An api answered with an error status, such as 404 when it does not exist
+ * or 401 when the session is not logged in, or with something that is not
+ * JSON at all, such as the HTML page of a site that has no such api.
+ *
+ * @author pkalogerop
+ */
+public class ApiStatusException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int status;
+
+    /**
+     * @param message what we asked for and what we got back.
+     * @param status the HTTP status of the response.
+     */
+    public ApiStatusException(String message, int status) {
+        super(message);
+        this.status = status;
+    }
+
+    /**
+     * @param message what we asked for and what we got back.
+     * @param status the HTTP status of the response.
+     * @param cause why we could not read the response.
+     */
+    public ApiStatusException(String message, int status, Throwable cause) {
+        super(message, cause);
+        this.status = status;
+    }
+
+    /**
+     * @return the HTTP status of the response.
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * Does the answer mean that the site has no such api? That is a 404, a
+     * redirect, for instance to the login page of the site, or a successful
+     * answer that is not JSON, such as a fallback HTML page.
+     *
+     * @return <code>true</code> if there is no api to talk to.
+     */
+    public boolean isApiMissing() {
+        return status == 404 || (status >= 200 && status < 400);
+    }
+}
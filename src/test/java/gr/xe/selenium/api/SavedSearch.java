@@ -0,0 +1,41 @@
+package gr.xe.selenium.api;
+
+/**
+ * A search that a user has saved, as the saved searches api returns it.
+ *
+ * @author pkalogerop
+ */
+public final class SavedSearch {
+
+    private final String id;
+    private final String query;
+
+    /**
+     * @param id the id of the saved search.
+     * @param query the query of the results url of the search, such as
+     * <code>item_type=re_land&amp;transaction_name=buy</code>.
+     */
+    public SavedSearch(String id, String query) {
+        this.id = id;
+        this.query = query;
+    }
+
+    /**
+     * @return the id of the saved search.
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return the query of the results url of the search.
+     */
+    public String getQuery() {
+        return query;
+    }
+
+    @Override
+    public String toString() {
+        return id + ": " + query;
+    }
+}
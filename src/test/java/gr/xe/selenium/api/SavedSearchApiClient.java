@@ -0,0 +1,216 @@
+package gr.xe.selenium.api;
+
+import gr.xe.selenium.pom.model.SearchCriteria;
+import gr.xe.selenium.utilities.SiteUrls;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+import org.openqa.selenium.Cookie;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * Lists, creates and deletes the saved searches of a logged in user over
+ * plain HTTP, without a browser. Tests use it to prepare and clean up their
+ * saved searches, which through the UI is slow and, since the site does not
+ * let us save a search twice, would otherwise leave the next run unable to
+ * save its search.
+ *
+ * <p>
+ * The client acts as the user of a browser session: it sends the cookies of
+ * the session along, so log in first, for instance with the
+ * <code>AuthSessionCache</code>. The api lives at
+ * <code>api/saved-searches</code> of the user account site, which can be
+ * changed with <code>-Dapi.savedSearchesPath</code>. Every call throws an
+ * <code>UncheckedIOException</code> if the request fails or the api answers
+ * with an error, in which case its cause is an {@link ApiStatusException}.
+ *
+ * @author pkalogerop
+ */
+public class SavedSearchApiClient {
+
+    private static final int TIMEOUT_MILLIS = 10000;
+
+    private final String apiUrl;
+    private final String cookieHeader;
+
+    /**
+     * @param apiUrl the url of the saved searches api.
+     * @param cookieHeader the <code>Cookie</code> header of the session of the
+     * user.
+     */
+    public SavedSearchApiClient(String apiUrl, String cookieHeader) {
+        this.apiUrl = apiUrl;
+        this.cookieHeader = cookieHeader;
+    }
+
+    /**
+     * Create a client that acts as the user that is logged in the given
+     * browser. The browser must be on a page of the site, since we can only
+     * read the cookies of the current domain.
+     *
+     * @param webDriver the browser of the logged in user.
+     * @return a <code>SavedSearchApiClient</code> with the cookies of the
+     * browser.
+     */
+    public static SavedSearchApiClient fromDriver(WebDriver webDriver) {
+        StringBuilder cookieHeader = new StringBuilder();
+        for (Cookie cookie : webDriver.manage().getCookies()) {
+            if (cookieHeader.length() > 0) {
+                cookieHeader.append("; ");
+            }
+            cookieHeader.append(cookie.getName()).append('=').append(cookie.getValue());
+        }
+        return new SavedSearchApiClient(SiteUrls.getMyBaseUrl()
+                + System.getProperty("api.savedSearchesPath", "api/saved-searches"), cookieHeader.toString());
+    }
+
+    /**
+     * @return the saved searches of the user, in the order they were saved.
+     */
+    public List<SavedSearch> list() {
+        Object response = send("GET", apiUrl, null);
+        if (!(response instanceof JSONArray)) {
+            throw new UncheckedIOException(new IOException("GET " + apiUrl + " did not return a list: " + response));
+        }
+        List<SavedSearch> savedSearches = new ArrayList<>();
+        for (Object item : (JSONArray) response) {
+            savedSearches.add(toSavedSearch(item));
+        }
+        return Collections.unmodifiableList(savedSearches);
+    }
+
+    /**
+     * Save a search for the user. Saving a search that is already saved gives
+     * back the saved one.
+     *
+     * @param query the query of the results url of the search, url encoded
+     * as in the url.
+     * @return the <code>SavedSearch</code>.
+     */
+    public SavedSearch create(String query) {
+        return toSavedSearch(send("POST", apiUrl, "query=" + encode(query)));
+    }
+
+    /**
+     * Save a search for the user.
+     *
+     * @param searchCriteria the criteria of the search.
+     * @return the <code>SavedSearch</code>.
+     */
+    public SavedSearch create(SearchCriteria searchCriteria) {
+        String query = URI.create(searchCriteria.toResultsUrl(SiteUrls.getBaseUrl())).getRawQuery();
+        return create(query == null ? "" : query);
+    }
+
+    /**
+     * Delete a saved search of the user.
+     *
+     * @param id the id of the saved search.
+     */
+    public void delete(String id) {
+        send("DELETE", apiUrl + "/" + encode(id), null);
+    }
+
+    /**
+     * Delete every saved search of the user, so that a test starts, or leaves,
+     * the account clean.
+     *
+     * @return how many saved searches we deleted.
+     */
+    public int deleteAll() {
+        List<SavedSearch> savedSearches = list();
+        for (SavedSearch savedSearch : savedSearches) {
+            delete(savedSearch.getId());
+        }
+        return savedSearches.size();
+    }
+
+    /*
+     * Send a request and parse its JSON response, null if it has none.
+     */
+    private Object send(String method, String url, String form) {
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) new URL(url).openConnection();
+            connection.setRequestMethod(method);
+            connection.setConnectTimeout(TIMEOUT_MILLIS);
+            connection.setReadTimeout(TIMEOUT_MILLIS);
+            connection.setInstanceFollowRedirects(false);
+            connection.setRequestProperty("Accept", "application/json");
+            if (!cookieHeader.isEmpty()) {
+                connection.setRequestProperty("Cookie", cookieHeader);
+            }
+            if (form != null) {
+                connection.setDoOutput(true);
+                connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded; charset=utf-8");
+                try (OutputStream body = connection.getOutputStream()) {
+                    body.write(form.getBytes(StandardCharsets.UTF_8));
+                }
+            }
+
+            int status = connection.getResponseCode();
+            if (status < 200 || status >= 300) {
+                throw new ApiStatusException(method + " " + url + " returned " + status + ": "
+                        + read(connection.getErrorStream()), status);
+            }
+            String response = read(connection.getInputStream());
+            try {
+                return response.trim().isEmpty() ? null : new JSONParser().parse(response);
+            } catch (ParseException ex) {
+                throw new ApiStatusException(method + " " + url + " did not return JSON", status, ex);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        } finally {
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
+    }
+
+    private static SavedSearch toSavedSearch(Object item) {
+        if (!(item instanceof JSONObject)) {
+            throw new UncheckedIOException(new IOException("Not a saved search: " + item));
+        }
+        JSONObject savedSearch = (JSONObject) item;
+        return new SavedSearch(String.valueOf(savedSearch.get("id")), String.valueOf(savedSearch.get("query")));
+    }
+
+    private static String read(InputStream input) throws IOException {
+        if (input == null) {
+            return "";
+        }
+        try (InputStream stream = input) {
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                content.write(buffer, 0, read);
+            }
+            return new String(content.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, "UTF-8");
+        } catch (UnsupportedEncodingException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package gr.xe.selenium.driver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Decides which requests of the browser the {@link ResourceBlockingProxy}
+ * should block. A rule is a glob where <code>*</code> matches anything:
+ * <ul>
+ * <li>a rule without a <code>/</code> is matched against the host, for
+ * instance <code>*.doubleclick.net</code></li>
+ * <li>a rule with a <code>/</code> is matched against the whole url, for
+ * instance <code>*://www.xe.gr/ads/*</code></li>
+ * </ul>
+ * Requests can also be blocked by their resource type, which we guess from the
+ * file extension of the url. Note that for https requests the proxy only sees
+ * the host, so url rules and resource types only apply to plain http requests.
+ * The one exception is <code>image</code>, which the browser itself also
+ * blocks through its preferences, see {@link BrowserFactory}. Fonts and media
+ * over https are always loaded.
+ * Anything that matches the allow list is never blocked.
+ *
+ * @author pkalogerop
+ */
+public class BlockingRules {
+
+    /**
+     * Ads, analytics and tracking hosts that none of our assertions look at.
+     */
+    public static final List<String> DEFAULT_BLOCKED_HOSTS = Collections.unmodifiableList(Arrays.asList(
+            "*.doubleclick.net", "*.googlesyndication.com", "*.googleadservices.com",
+            "*.google-analytics.com", "*.googletagmanager.com", "*.googletagservices.com",
+            "*.facebook.net", "*.facebook.com", "*.hotjar.com", "*.criteo.com", "*.criteo.net",
+            "*.adnxs.com", "*.scorecardresearch.com", "*.taboola.com", "*.outbrain.com"));
+
+    private static final List<String> IMAGE_EXTENSIONS = Arrays.asList(
+            "png", "jpg", "jpeg", "gif", "webp", "svg", "ico", "avif");
+    private static final List<String> FONT_EXTENSIONS = Arrays.asList("woff", "woff2", "ttf", "otf", "eot");
+    private static final List<String> MEDIA_EXTENSIONS = Arrays.asList("mp4", "webm", "mp3", "ogg", "wav");
+
+    private final List<Pattern> blockedHosts = new ArrayList<>();
+    private final List<Pattern> blockedUrls = new ArrayList<>();
+    private final Set<String> blockedExtensions = new HashSet<>();
+    private final Set<String> blockedResourceTypes;
+    private final List<Pattern> allowedHosts = new ArrayList<>();
+    private final List<Pattern> allowedUrls = new ArrayList<>();
+    private final List<String> configuredAllowedPatterns;
+
+    /**
+     * @param blockedPatterns the host or url globs that we want to block.
+     * @param blockedResourceTypes the resource types that we want to block, any
+     * of <code>image</code>, <code>font</code> and <code>media</code>.
+     * @param allowedPatterns the host or url globs that must never be blocked.
+     */
+    public BlockingRules(Collection<String> blockedPatterns, Collection<String> blockedResourceTypes,
+            Collection<String> allowedPatterns) {
+        for (String pattern : blockedPatterns) {
+            addPattern(pattern, blockedHosts, blockedUrls);
+        }
+        Set<String> resourceTypes = new HashSet<>();
+        for (String resourceType : blockedResourceTypes) {
+            String type = resourceType.trim().toLowerCase(Locale.ROOT);
+            resourceTypes.add(type);
+            if ("image".equals(type)) {
+                blockedExtensions.addAll(IMAGE_EXTENSIONS);
+            } else if ("font".equals(type)) {
+                blockedExtensions.addAll(FONT_EXTENSIONS);
+            } else if ("media".equals(type)) {
+                blockedExtensions.addAll(MEDIA_EXTENSIONS);
+            } else if (!type.isEmpty()) {
+                throw new IllegalArgumentException("Unknown resource type: " + resourceType);
+            }
+        }
+        this.blockedResourceTypes = Collections.unmodifiableSet(resourceTypes);
+        this.configuredAllowedPatterns = new ArrayList<>(allowedPatterns);
+        allow(allowedPatterns);
+    }
+
+    /**
+     * Build the rules from the system properties:
+     * <ul>
+     * <li><code>block.urlPatterns</code>: extra host or url globs to block, on
+     * top of the {@link #DEFAULT_BLOCKED_HOSTS default hosts}</li>
+     * <li><code>block.resourceTypes</code>: resource types to block (default
+     * <code>image,font,media</code>; fonts and media over plain http only)</li>
+     * <li><code>block.allow</code>: globs that must never be blocked</li>
+     * </ul>
+     * All of them are comma separated.
+     *
+     * @return the configured <code>BlockingRules</code>.
+     */
+    public static BlockingRules fromSystemProperties() {
+        List<String> blockedPatterns = new ArrayList<>(DEFAULT_BLOCKED_HOSTS);
+        blockedPatterns.addAll(split(System.getProperty("block.urlPatterns", "")));
+        return new BlockingRules(blockedPatterns,
+                split(System.getProperty("block.resourceTypes", "image,font,media")),
+                split(System.getProperty("block.allow", "")));
+    }
+
+    /**
+     * Never block the requests that match any of the given globs from now on.
+     *
+     * @param patterns host or url globs.
+     */
+    public final synchronized void allow(Collection<String> patterns) {
+        for (String pattern : patterns) {
+            addPattern(pattern, allowedHosts, allowedUrls);
+        }
+    }
+
+    /**
+     * Forget whatever was {@link #allow(Collection) allowed} after these rules
+     * were created, for instance by the test that has just finished.
+     */
+    public synchronized void resetAllowList() {
+        allowedHosts.clear();
+        allowedUrls.clear();
+        allow(configuredAllowedPatterns);
+    }
+
+    /**
+     * @return the resource types that these rules block.
+     */
+    public Set<String> getBlockedResourceTypes() {
+        return blockedResourceTypes;
+    }
+
+    /**
+     * Should a plain http request be blocked?
+     *
+     * @param host the host of the request.
+     * @param url the whole url of the request.
+     * @return <code>true</code> if the request must be blocked.
+     */
+    public synchronized boolean isBlocked(String host, String url) {
+        if (matchesAny(allowedHosts, host) || matchesAny(allowedUrls, url)) {
+            return false;
+        }
+        return matchesAny(blockedHosts, host) || matchesAny(blockedUrls, url)
+                || blockedExtensions.contains(extensionOf(url));
+    }
+
+    /**
+     * Should a tunnelled (https) connection be blocked? We only know its host.
+     *
+     * @param host the host that the browser wants to connect to.
+     * @return <code>true</code> if the connection must be blocked.
+     */
+    public synchronized boolean isHostBlocked(String host) {
+        return !matchesAny(allowedHosts, host) && matchesAny(blockedHosts, host);
+    }
+
+    private static void addPattern(String pattern, List<Pattern> hostPatterns, List<Pattern> urlPatterns) {
+        String trimmed = pattern.trim();
+        if (trimmed.isEmpty()) {
+            return;
+        }
+        (trimmed.contains("/") ? urlPatterns : hostPatterns).add(globToPattern(trimmed));
+    }
+
+    private static Pattern globToPattern(String glob) {
+        StringBuilder regex = new StringBuilder();
+        for (String literal : glob.split("\\*", -1)) {
+            if (regex.length() > 0) {
+                regex.append(".*");
+            }
+            regex.append(Pattern.quote(literal));
+        }
+        return Pattern.compile(regex.toString(), Pattern.CASE_INSENSITIVE);
+    }
+
+    private static boolean matchesAny(List<Pattern> patterns, String value) {
+        for (Pattern pattern : patterns) {
+            if (pattern.matcher(value).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String extensionOf(String url) {
+        String path = url;
+        int queryStart = path.indexOf('?');
+        if (queryStart >= 0) {
+            path = path.substring(0, queryStart);
+        }
+        int lastSlash = path.lastIndexOf('/');
+        int lastDot = path.lastIndexOf('.');
+        return lastDot > lastSlash ? path.substring(lastDot + 1).toLowerCase(Locale.ROOT) : "";
+    }
+
+    private static List<String> split(String commaSeparated) {
+        List<String> values = new ArrayList<>();
+        for (String value : commaSeparated.split(",")) {
+            if (!value.trim().isEmpty()) {
+                values.add(value.trim());
+            }
+        }
+        return values;
+    }
+}
@@ -0,0 +1,176 @@
+package gr.xe.selenium.driver;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Locale;
+import org.openqa.selenium.Dimension;
+import org.openqa.selenium.PageLoadStrategy;
+import org.openqa.selenium.Proxy;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chrome.ChromeDriver;
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.openqa.selenium.firefox.FirefoxDriver;
+import org.openqa.selenium.firefox.FirefoxOptions;
+
+/**
+ * Launches the browsers of our tests, as configured by the system properties:
+ * <ul>
+ * <li><code>browser.type</code>: <code>chrome</code> (default) or
+ * <code>firefox</code>, see {@link BrowserTypeEnum}</li>
+ * <li><code>browser.headless</code>: <code>true</code> by default</li>
+ * <li><code>browser.viewport</code>: the window size, <code>1920x1080</code>
+ * by default. We never maximize, so that the pages lay out the same way on
+ * every machine, headless or not.</li>
+ * <li><code>browser.pageLoadStrategy</code>: <code>normal</code>,
+ * <code>eager</code> (default) or <code>none</code></li>
+ * <li><code>browser.driverPath</code>: the driver binary to use</li>
+ * </ul>
+ * Without <code>browser.driverPath</code> (or the Selenium property of the
+ * browser, such as <code>webdriver.chrome.driver</code>) we use the binary
+ * of <code>src/main/resources</code> that matches the platform, which is
+ * <code>chromedriver.exe</code> on Windows and <code>chromedriver</code>
+ * anywhere else, and if it is not there we let Selenium find the driver on the
+ * <code>PATH</code>.
+ *
+ * <p>
+ * The browsers are launched without GPU, extensions and background
+ * throttling, none of which a test needs, and which slow down a CI box.
+ *
+ * @author pkalogerop
+ */
+public final class BrowserFactory {
+
+    private BrowserFactory() {
+    }
+
+    /**
+     * Launch a new browser, as configured by the system properties. The test
+     * that calls this owns the browser and must quit it. Tests that extend
+     * <code>BaseTest</code> should use their pooled driver instead.
+     *
+     * @return a new <code>WebDriver</code>.
+     */
+    public static WebDriver createBrowser() {
+        return createBrowser(null);
+    }
+
+    /**
+     * Launch a new browser that goes through the given proxy.
+     *
+     * @param proxy the {@link ResourceBlockingProxy} of the browser, or
+     * <code>null</code> to connect directly.
+     * @return a new <code>WebDriver</code>.
+     */
+    static WebDriver createBrowser(ResourceBlockingProxy proxy) {
+        BrowserTypeEnum browserType = BrowserTypeEnum.fromSystemProperty();
+        resolveDriverBinary(browserType);
+        boolean headless = Boolean.parseBoolean(System.getProperty("browser.headless", "true"));
+        Dimension viewport = getViewport();
+        PageLoadStrategy pageLoadStrategy = PageLoadStrategy.fromString(
+                System.getProperty("browser.pageLoadStrategy", "eager"));
+        boolean blockImages = proxy != null
+                && proxy.getBlockingRules().getBlockedResourceTypes().contains("image");
+
+        WebDriver webDriver;
+        switch (browserType) {
+            case FIREFOX:
+                webDriver = createFirefox(headless, viewport, pageLoadStrategy, proxy, blockImages);
+                break;
+            default:
+                webDriver = createChrome(headless, viewport, pageLoadStrategy, proxy, blockImages);
+        }
+        //The launch arguments size the whole window of a headed browser, so size it once more.
+        try {
+            webDriver.manage().window().setSize(viewport);
+        } catch (RuntimeException ex) {
+            webDriver.quit();
+            throw ex;
+        }
+        return webDriver;
+    }
+
+    /**
+     * @return the window size of <code>-Dbrowser.viewport</code>, such as
+     * <code>1920x1080</code>.
+     */
+    public static Dimension getViewport() {
+        String viewport = System.getProperty("browser.viewport", "1920x1080");
+        String[] size = viewport.toLowerCase(Locale.ROOT).split("x");
+        try {
+            return new Dimension(Integer.parseInt(size[0].trim()), Integer.parseInt(size[1].trim()));
+        } catch (RuntimeException ex) {
+            throw new IllegalArgumentException("browser.viewport must be like 1920x1080, not " + viewport, ex);
+        }
+    }
+
+    private static WebDriver createChrome(boolean headless, Dimension viewport, PageLoadStrategy pageLoadStrategy,
+            ResourceBlockingProxy proxy, boolean blockImages) {
+        ChromeOptions options = new ChromeOptions();
+        options.setHeadless(headless);
+        options.setPageLoadStrategy(pageLoadStrategy);
+        options.addArguments("--window-size=" + viewport.getWidth() + "," + viewport.getHeight(),
+                "--disable-gpu",
+                "--disable-extensions",
+                "--disable-background-networking",
+                "--disable-background-timer-throttling",
+                "--disable-backgrounding-occluded-windows",
+                "--disable-renderer-backgrounding",
+                //Docker gives /dev/shm 64MB, which is not enough for chrome.
+                "--disable-dev-shm-usage",
+                "--no-first-run",
+                "--no-default-browser-check");
+        if (proxy != null) {
+            options.addArguments("--proxy-server=http://" + proxy.getAddress());
+        }
+        if (blockImages) {
+            //The proxy cannot see inside https, so let chrome itself skip the images.
+            options.setExperimentalOption("prefs",
+                    Collections.singletonMap("profile.managed_default_content_settings.images", 2));
+        }
+        return new ChromeDriver(options);
+    }
+
+    private static WebDriver createFirefox(boolean headless, Dimension viewport, PageLoadStrategy pageLoadStrategy,
+            ResourceBlockingProxy proxy, boolean blockImages) {
+        FirefoxOptions options = new FirefoxOptions();
+        options.setHeadless(headless);
+        options.setPageLoadStrategy(pageLoadStrategy);
+        options.addArguments("--width=" + viewport.getWidth(), "--height=" + viewport.getHeight());
+        options.addPreference("layers.acceleration.disabled", true);
+        options.addPreference("extensions.update.enabled", false);
+        options.addPreference("app.update.auto", false);
+        options.addPreference("dom.min_background_timeout_value", 0);
+        options.addPreference("dom.timeout.enable_budget_timer_throttling", false);
+        options.addPreference("browser.shell.checkDefaultBrowser", false);
+        if (proxy != null) {
+            Proxy seleniumProxy = new Proxy();
+            seleniumProxy.setHttpProxy(proxy.getAddress()).setSslProxy(proxy.getAddress());
+            options.setProxy(seleniumProxy);
+        }
+        if (blockImages) {
+            options.addPreference("permissions.default.image", 2);
+        }
+        return new FirefoxDriver(options);
+    }
+
+    /*
+     * An explicit driver path always wins, then the binary of our resources,
+     * then the PATH, where Selenium looks when the property is not set.
+     */
+    private static void resolveDriverBinary(BrowserTypeEnum browserType) {
+        String driverPath = System.getProperty("browser.driverPath");
+        if (driverPath != null && !driverPath.trim().isEmpty()) {
+            System.setProperty(browserType.getDriverProperty(), driverPath.trim());
+            return;
+        }
+        if (System.getProperty(browserType.getDriverProperty()) != null) {
+            return;
+        }
+        boolean windows = System.getProperty("os.name", "").toLowerCase(Locale.ROOT).startsWith("windows");
+        File bundledDriver = new File(System.getProperty("user.dir"),
+                "src/main/resources/" + browserType.getDriverBinary(windows));
+        if (bundledDriver.isFile()) {
+            System.setProperty(browserType.getDriverProperty(), bundledDriver.getAbsolutePath());
+        }
+    }
+}
@@ -0,0 +1,377 @@
+package gr.xe.selenium.driver;
+
+import gr.xe.selenium.session.LoginStateEnum;
+import gr.xe.selenium.session.SessionStateTracker;
+import gr.xe.selenium.utilities.SiteUrls;
+import java.net.URI;
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.testng.Reporter;
+
+/**
+ * A pool of already launched browser sessions. Launching a browser is the most
+ * expensive thing a test class does, so we launch them once per JVM and test
+ * classes lease a session and return it when they are done, instead of
+ * starting and quitting their own.
+ *
+ * <p>
+ * The pool is configured with the following system properties:
+ * <ul>
+ * <li><code>pool.minSize</code>: sessions launched up front (default 1)</li>
+ * <li><code>pool.maxSize</code>: sessions alive at the same time (default
+ * 4)</li>
+ * <li><code>pool.maxUses</code>: leases after which a session is replaced by
+ * a fresh one (default 50)</li>
+ * <li><code>pool.leaseTimeoutSeconds</code>: how long we wait for a free
+ * session before we give up (default 120)</li>
+ * </ul>
+ *
+ * @author pkalogerop
+ */
+public class BrowserSessionPool {
+
+    private static final String BLANK_PAGE = "about:blank";
+
+    /*
+    How long a waiting lease sleeps before it checks again whether an evicted
+    session has freed a slot.
+     */
+    private static final long WAIT_SLICE_MILLIS = 100;
+
+    private static volatile BrowserSessionPool instance;
+
+    private final Supplier<WebDriver> sessionFactory;
+    private final int minSize;
+    private final int maxSize;
+    private final int maxUses;
+    private final Duration leaseTimeout;
+
+    /*
+    Idle sessions are handed out LIFO, so that the sessions that were used last
+    (and are still warm) are the ones that get reused.
+     */
+    private final LinkedBlockingDeque<PooledSession> idleSessions = new LinkedBlockingDeque<>();
+    private final Map<WebDriver, PooledSession> leasedSessions = new ConcurrentHashMap<>();
+    private final AtomicInteger totalSessions = new AtomicInteger();
+    private final AtomicInteger pendingSessions = new AtomicInteger();
+    private volatile boolean shutDown;
+
+    public BrowserSessionPool(Supplier<WebDriver> sessionFactory, int minSize, int maxSize,
+            int maxUses, Duration leaseTimeout) {
+        if (minSize < 0 || maxSize < 1 || minSize > maxSize || maxUses < 1) {
+            throw new IllegalArgumentException("Invalid pool sizes: min=" + minSize
+                    + ", max=" + maxSize + ", maxUses=" + maxUses);
+        }
+        this.sessionFactory = sessionFactory;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.maxUses = maxUses;
+        this.leaseTimeout = leaseTimeout;
+    }
+
+    /**
+     * Get the pool that is shared by the whole JVM. It is created and warmed up
+     * the first time we ask for it and its sessions are quit by
+     * {@link #shutdownInstance() shutdownInstance}, which our suites call when
+     * they finish. A shutdown hook quits them too, in case the JVM exits
+     * without that.
+     *
+     * @return the JVM wide <code>BrowserSessionPool</code>.
+     */
+    public static BrowserSessionPool getInstance() {
+        if (instance == null) {
+            synchronized (BrowserSessionPool.class) {
+                if (instance == null) {
+                    BrowserSessionPool pool = new BrowserSessionPool(
+                            DriverManager::createDriver,
+                            Integer.getInteger("pool.minSize", 1),
+                            Integer.getInteger("pool.maxSize", 4),
+                            Integer.getInteger("pool.maxUses", 50),
+                            Duration.ofSeconds(Integer.getInteger("pool.leaseTimeoutSeconds", 120)));
+                    Runtime.getRuntime().addShutdownHook(new Thread(pool::shutdown));
+                    pool.warmUp();
+                    instance = pool;
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Quit every session of the pool that is shared by the whole JVM, if it
+     * has been created. Asking for the {@link #getInstance() instance}
+     * afterwards creates a new pool.
+     */
+    public static void shutdownInstance() {
+        BrowserSessionPool pool;
+        synchronized (BrowserSessionPool.class) {
+            pool = instance;
+            instance = null;
+        }
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Launch, in the background, as many sessions as needed to reach the
+     * minimum size of the pool.
+     */
+    public void warmUp() {
+        while (totalSessions.get() < minSize && reserveSlot()) {
+            pendingSessions.incrementAndGet();
+            Thread launcher = new Thread(() -> {
+                try {
+                    PooledSession session = launchSession();
+                    if (session != null) {
+                        idleSessions.offerLast(session);
+                        //The pool may have been shut down while the browser was launching.
+                        if (shutDown && idleSessions.remove(session)) {
+                            evict(session);
+                        }
+                    }
+                } finally {
+                    pendingSessions.decrementAndGet();
+                }
+            }, "browser-pool-warm-up");
+            launcher.setDaemon(true);
+            launcher.start();
+        }
+    }
+
+    /**
+     * Lease a session, waiting up to the configured lease timeout if all of
+     * them are taken.
+     *
+     * @return a <code>WebDriver</code> that is exclusively ours until we
+     * {@link #release(WebDriver) release} it.
+     */
+    public WebDriver lease() {
+        return lease(leaseTimeout);
+    }
+
+    /**
+     * Lease a session, waiting up to the given timeout if all of them are
+     * taken.
+     *
+     * @param timeout how long we are willing to wait for a free session.
+     * @return a <code>WebDriver</code> that is exclusively ours until we
+     * {@link #release(WebDriver) release} it.
+     * @throws TimeoutException if no session became free in time.
+     */
+    public WebDriver lease(Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+
+        while (true) {
+            if (shutDown) {
+                throw new IllegalStateException("The browser session pool has been shut down.");
+            }
+
+            PooledSession session = idleSessions.pollFirst();
+
+            //Only launch a new session if none is on its way from the warm up.
+            if (session == null && pendingSessions.get() == 0 && reserveSlot()) {
+                session = launchSession();
+            }
+
+            if (session == null) {
+                long remainingNanos = deadline - System.nanoTime();
+                if (remainingNanos <= 0) {
+                    throw new TimeoutException("No browser session became available within "
+                            + timeout.getSeconds() + " seconds (pool max size is " + maxSize + ").");
+                }
+                session = pollIdle(Math.min(remainingNanos,
+                        TimeUnit.MILLISECONDS.toNanos(WAIT_SLICE_MILLIS)));
+            }
+
+            if (session != null) {
+                session.uses++;
+                leasedSessions.put(session.webDriver, session);
+                return session.webDriver;
+            }
+        }
+    }
+
+    /**
+     * Return a leased session to the pool. The session is reset and checked
+     * before anyone else can lease it, and it is quit instead if it has crashed
+     * or has been used too many times.
+     *
+     * @param webDriver the <code>WebDriver</code> that we got from
+     * {@link #lease() lease}.
+     */
+    public void release(WebDriver webDriver) {
+        PooledSession session = leasedSessions.remove(webDriver);
+        if (session == null) {
+            //Not one of ours, or already returned.
+            return;
+        }
+
+        if (shutDown || session.uses >= maxUses || !resetSession(session)) {
+            evict(session);
+            return;
+        }
+
+        idleSessions.offerFirst(session);
+    }
+
+    /**
+     * Quit every session of the pool, idle or leased. Nothing can be leased
+     * after this.
+     */
+    public void shutdown() {
+        shutDown = true;
+        for (PooledSession session : leasedSessions.values()) {
+            evict(session);
+        }
+        leasedSessions.clear();
+
+        PooledSession session;
+        while ((session = idleSessions.pollFirst()) != null) {
+            evict(session);
+        }
+    }
+
+    /**
+     * @return the number of sessions that are currently alive, leased or idle.
+     */
+    public int getSize() {
+        return totalSessions.get();
+    }
+
+    /**
+     * @return the number of sessions that are currently leased.
+     */
+    public int getLeasedCount() {
+        return leasedSessions.size();
+    }
+
+    private boolean reserveSlot() {
+        int current;
+        do {
+            current = totalSessions.get();
+            if (current >= maxSize) {
+                return false;
+            }
+        } while (!totalSessions.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    private PooledSession launchSession() {
+        try {
+            WebDriver webDriver = sessionFactory.get();
+            //A brand new browser has no cookies, so it cannot be logged in.
+            SessionStateTracker.getInstance().setState(webDriver, LoginStateEnum.LOGGED_OUT);
+            return new PooledSession(webDriver);
+        } catch (RuntimeException ex) {
+            //Give the slot back, otherwise a failed launch would shrink the pool forever.
+            totalSessions.decrementAndGet();
+            throw ex;
+        }
+    }
+
+    private PooledSession pollIdle(long timeoutNanos) {
+        try {
+            return idleSessions.pollFirst(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new WebDriverException("Interrupted while waiting for a browser session.", ex);
+        }
+    }
+
+    /*
+     * Bring the session back to a clean state and check that the browser still
+     * responds. Returns false if the session should not be reused.
+     */
+    private boolean resetSession(PooledSession session) {
+        WebDriver webDriver = session.webDriver;
+        try {
+            //Close any popups or tabs that the test has opened.
+            String mainWindow = webDriver.getWindowHandles().iterator().next();
+            for (String handle : webDriver.getWindowHandles()) {
+                if (!handle.equals(mainWindow)) {
+                    webDriver.switchTo().window(handle).close();
+                }
+            }
+            webDriver.switchTo().window(mainWindow);
+
+            /*
+            Cookies and storage can only be cleared for the site we are on, so
+            clear them before we leave it and then on every one of our sites,
+            since a test may end on www.xe.gr after logging in on my.xe.gr.
+            Any page of a site will do, so we pick the lightest one.
+            */
+            clearCookiesAndStorage(webDriver);
+            String currentOrigin = originOf(webDriver.getCurrentUrl());
+            for (String origin : getSiteOrigins()) {
+                if (!origin.equals(currentOrigin)) {
+                    webDriver.get(origin + "/robots.txt");
+                    clearCookiesAndStorage(webDriver);
+                }
+            }
+            SessionStateTracker.getInstance().setState(webDriver, LoginStateEnum.LOGGED_OUT);
+
+            webDriver.get(BLANK_PAGE);
+            ResourceBlocker.reset(webDriver);
+            return BLANK_PAGE.equals(webDriver.getCurrentUrl());
+        } catch (RuntimeException ex) {
+            Reporter.log("Evicting an unresponsive browser session: " + ex.getMessage(), true);
+            return false;
+        }
+    }
+
+    private static void clearCookiesAndStorage(WebDriver webDriver) {
+        webDriver.manage().deleteAllCookies();
+        ((JavascriptExecutor) webDriver).executeScript(
+                "try { window.localStorage.clear(); window.sessionStorage.clear(); } catch (e) {}");
+    }
+
+    private static Set<String> getSiteOrigins() {
+        Set<String> origins = new LinkedHashSet<>();
+        origins.add(originOf(SiteUrls.getBaseUrl()));
+        origins.add(originOf(SiteUrls.getMyBaseUrl()));
+        return origins;
+    }
+
+    private static String originOf(String url) {
+        try {
+            URI uri = URI.create(url);
+            return uri.getScheme() + "://" + uri.getRawAuthority();
+        } catch (IllegalArgumentException ex) {
+            return "";
+        }
+    }
+
+    private void evict(PooledSession session) {
+        totalSessions.decrementAndGet();
+        SessionStateTracker.getInstance().forget(session.webDriver);
+        ResourceBlocker.stop(session.webDriver);
+        try {
+            session.webDriver.quit();
+        } catch (RuntimeException ex) {
+            //The browser has probably crashed already, there is nothing left to clean.
+            Reporter.log("Could not quit the browser session: " + ex.getMessage(), true);
+        }
+    }
+
+    private static final class PooledSession {
+
+        private final WebDriver webDriver;
+        private int uses;
+
+        private PooledSession(WebDriver webDriver) {
+            this.webDriver = webDriver;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package gr.xe.selenium.driver;
+
+import java.util.Locale;
+
+/**
+ * This <code>Enum</code> contains the browsers that the {@link BrowserFactory}
+ * can launch, together with the system property that Selenium reads the path
+ * of their driver binary from and the name of that binary.
+ * @author pkalogerop
+ */
+public enum BrowserTypeEnum {
+
+    CHROME("webdriver.chrome.driver", "chromedriver"),
+    FIREFOX("webdriver.gecko.driver", "geckodriver");
+
+    private final String driverProperty;
+    private final String driverBinary;
+
+    BrowserTypeEnum(String driverProperty, String driverBinary) {
+        this.driverProperty = driverProperty;
+        this.driverBinary = driverBinary;
+    }
+
+    /**
+     * @return the system property that holds the path of the driver binary,
+     * such as <code>webdriver.chrome.driver</code>.
+     */
+    public String getDriverProperty() {
+        return driverProperty;
+    }
+
+    /**
+     * @param windows whether we run on Windows.
+     * @return the file name of the driver binary, such as
+     * <code>chromedriver.exe</code> on Windows and <code>chromedriver</code>
+     * anywhere else.
+     */
+    public String getDriverBinary(boolean windows) {
+        return windows ? driverBinary + ".exe" : driverBinary;
+    }
+
+    /**
+     * @return the browser of <code>-Dbrowser.type</code>, Chrome by default.
+     */
+    public static BrowserTypeEnum fromSystemProperty() {
+        String browserType = System.getProperty("browser.type", "chrome").trim().toUpperCase(Locale.ROOT);
+        try {
+            return valueOf(browserType);
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Unknown browser.type " + browserType
+                    + ", use chrome or firefox", ex);
+        }
+    }
+}
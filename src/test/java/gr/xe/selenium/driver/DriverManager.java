@@ -0,0 +1,121 @@
+package gr.xe.selenium.driver;
+
+import gr.xe.selenium.metrics.InstrumentedWebDriver;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * Hands out one <code>WebDriver</code> per thread, so that TestNG can run our
+ * methods, classes or instances in parallel without two tests ever driving the
+ * same browser. Tests should always ask for their driver through
+ * {@link #getDriver() getDriver} instead of keeping it in a field.
+ *
+ * <p>
+ * The drivers are leased from the {@link BrowserSessionPool}, so the browsers
+ * are launched once per JVM and not once per test class.
+ *
+ * @author pkalogerop
+ */
+public final class DriverManager {
+
+    private static final ThreadLocal<WebDriver> THREAD_DRIVER = new ThreadLocal<>();
+
+    /*
+    Every driver we have leased and not released yet, regardless of the thread
+    that owns it. We need this because the thread that tears down the suite is
+    usually not the one that leased the drivers.
+     */
+    private static final Set<WebDriver> ACTIVE_DRIVERS = ConcurrentHashMap.newKeySet();
+
+    private DriverManager() {
+    }
+
+    /**
+     * Get the <code>WebDriver</code> of the current thread. The driver is
+     * leased the first time a thread asks for it and kept until it is
+     * {@link #releaseDriver() released}, which our tests do after every test
+     * method, so each method gets a clean session from the pool.
+     *
+     * @return the <code>WebDriver</code> owned by the current thread.
+     */
+    public static WebDriver getDriver() {
+        WebDriver webDriver = THREAD_DRIVER.get();
+        //The driver may have been released by the suite teardown on another thread.
+        if (webDriver == null || !ACTIVE_DRIVERS.contains(webDriver)) {
+            webDriver = BrowserSessionPool.getInstance().lease();
+            THREAD_DRIVER.set(webDriver);
+            ACTIVE_DRIVERS.add(webDriver);
+        }
+        return webDriver;
+    }
+
+    /**
+     * Return the <code>WebDriver</code> of the current thread to the pool, if
+     * there is one.
+     */
+    public static void releaseDriver() {
+        WebDriver webDriver = THREAD_DRIVER.get();
+        THREAD_DRIVER.remove();
+        if (webDriver != null) {
+            release(webDriver);
+        }
+    }
+
+    /**
+     * Return every <code>WebDriver</code> that we have leased, on any thread,
+     * to the pool and quit all the browsers of the pool. This is meant to be
+     * called once the whole suite has finished.
+     */
+    public static void releaseAllDrivers() {
+        THREAD_DRIVER.remove();
+        for (WebDriver webDriver : ACTIVE_DRIVERS) {
+            release(webDriver);
+        }
+        BrowserSessionPool.shutdownInstance();
+    }
+
+    private static void release(WebDriver webDriver) {
+        if (ACTIVE_DRIVERS.remove(webDriver)) {
+            BrowserSessionPool.getInstance().release(webDriver);
+        }
+    }
+
+    /**
+     * Launch a new browser. This is what the {@link BrowserSessionPool} uses
+     * to fill itself, tests should never call it directly. The browser is
+     * launched by the {@link BrowserFactory}, which is where the browser type,
+     * headless mode, viewport and page load strategy are configured. With
+     * <code>-Dblock.enabled=true</code> the browser goes through its own
+     * {@link ResourceBlockingProxy}.
+     *
+     * <p>
+     * Unless we run with <code>-Dmetrics.commands=false</code> the driver is
+     * an {@link InstrumentedWebDriver} that times every command it sends.
+     *
+     * @return a new <code>WebDriver</code>.
+     */
+    static WebDriver createDriver() {
+        ResourceBlockingProxy proxy = null;
+        if (ResourceBlocker.isEnabled()) {
+            proxy = ResourceBlocker.startProxy();
+        }
+
+        WebDriver webDriver;
+        try {
+            webDriver = BrowserFactory.createBrowser(proxy);
+        } catch (RuntimeException ex) {
+            if (proxy != null) {
+                proxy.stop();
+            }
+            throw ex;
+        }
+        if (InstrumentedWebDriver.isEnabled()) {
+            webDriver = InstrumentedWebDriver.instrument(webDriver);
+        }
+        if (proxy != null) {
+            ResourceBlocker.register(webDriver, proxy);
+        }
+        return webDriver;
+    }
+}
@@ -0,0 +1,123 @@
+package gr.xe.selenium.driver;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * Keeps the {@link ResourceBlockingProxy} of every browser session that we
+ * launch with <code>-Dblock.enabled=true</code>. Page Object Models use it to
+ * report what was blocked on each navigation and tests use it to allow
+ * resources that they do need.
+ *
+ * @author pkalogerop
+ */
+public final class ResourceBlocker {
+
+    private static final Map<WebDriver, ResourceBlockingProxy> PROXIES = new ConcurrentHashMap<>();
+    private static final Map<WebDriver, String> NAVIGATIONS = new ConcurrentHashMap<>();
+
+    private ResourceBlocker() {
+    }
+
+    /**
+     * @return <code>true</code> if new browser sessions should go through a
+     * blocking proxy.
+     */
+    public static boolean isEnabled() {
+        return Boolean.getBoolean("block.enabled");
+    }
+
+    /**
+     * Allow the given resources for the given session, until the session is
+     * returned to the pool. Use it from a test that needs something that we
+     * block by default.
+     *
+     * @param webDriver the session of the current test.
+     * @param patterns host or url globs, as described in {@link BlockingRules}.
+     */
+    public static void allow(WebDriver webDriver, String... patterns) {
+        ResourceBlockingProxy proxy = PROXIES.get(webDriver);
+        if (proxy != null) {
+            proxy.getBlockingRules().allow(Arrays.asList(patterns));
+        }
+    }
+
+    /**
+     * Start counting the traffic of a new navigation of the given session.
+     * Callers should first {@link #finishNavigation(WebDriver) finish} the
+     * previous one, because with the "eager" or "none" page load strategy the
+     * previous page may have kept loading after we reported it.
+     *
+     * @param webDriver the session that is about to navigate.
+     * @param url the url that the session is about to visit.
+     */
+    public static void startNavigation(WebDriver webDriver, String url) {
+        ResourceBlockingProxy proxy = PROXIES.get(webDriver);
+        if (proxy != null) {
+            proxy.snapshotAndReset();
+            NAVIGATIONS.put(webDriver, url);
+        }
+    }
+
+    /**
+     * Get the traffic of the given session since its last
+     * {@link #startNavigation(WebDriver, String) startNavigation} or
+     * <code>finishNavigation</code>, whichever came last. Page Object Models
+     * call it once the page is ready and again before the next navigation,
+     * so whatever the page loads late is still charged to it.
+     *
+     * @param webDriver the session that has navigated.
+     * @return the <code>TrafficStats</code> of the navigation, or
+     * <code>null</code> if the session does not go through a blocking proxy.
+     */
+    public static TrafficStats finishNavigation(WebDriver webDriver) {
+        ResourceBlockingProxy proxy = PROXIES.get(webDriver);
+        return proxy == null ? null : proxy.snapshotAndReset();
+    }
+
+    /**
+     * @param webDriver a browser session.
+     * @return the url of the last navigation of the given session, or
+     * <code>null</code> if it has not navigated through a blocking proxy.
+     */
+    public static String getNavigationUrl(WebDriver webDriver) {
+        return NAVIGATIONS.get(webDriver);
+    }
+
+    static ResourceBlockingProxy startProxy() {
+        try {
+            return new ResourceBlockingProxy(BlockingRules.fromSystemProperties()).start();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not start the resource blocking proxy.", ex);
+        }
+    }
+
+    static void register(WebDriver webDriver, ResourceBlockingProxy proxy) {
+        PROXIES.put(webDriver, proxy);
+    }
+
+    /*
+     * The session is going back to the pool, so drop whatever the last test
+     * allowed.
+     */
+    static void reset(WebDriver webDriver) {
+        ResourceBlockingProxy proxy = PROXIES.get(webDriver);
+        if (proxy != null) {
+            proxy.getBlockingRules().resetAllowList();
+            proxy.snapshotAndReset();
+        }
+        NAVIGATIONS.remove(webDriver);
+    }
+
+    static void stop(WebDriver webDriver) {
+        NAVIGATIONS.remove(webDriver);
+        ResourceBlockingProxy proxy = PROXIES.remove(webDriver);
+        if (proxy != null) {
+            proxy.stop();
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package gr.xe.selenium.driver;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A tiny local HTTP proxy that sits between one browser session and the
+ * internet and refuses the requests that its {@link BlockingRules} block
+ * (ads, analytics, images and so on), so that pages become usable sooner.
+ * Https traffic is tunnelled as is, so for https we can only block whole
+ * hosts. Every browser session gets its own proxy, which lets a test allow
+ * extra resources without affecting the other sessions.
+ *
+ * @author pkalogerop
+ */
+public class ResourceBlockingProxy {
+
+    private static final int MAX_REQUEST_HEAD_BYTES = 64 * 1024;
+    private static final int CONNECT_TIMEOUT_MILLIS = 10000;
+    private static final byte[] FORBIDDEN_RESPONSE = ("HTTP/1.1 403 Forbidden\r\n"
+            + "Content-Length: 0\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1);
+
+    private final BlockingRules blockingRules;
+    private final AtomicLong blockedRequests = new AtomicLong();
+    private final AtomicLong allowedRequests = new AtomicLong();
+    private final AtomicLong blockedConnections = new AtomicLong();
+    private final AtomicLong allowedConnections = new AtomicLong();
+    private final AtomicLong allowedBytes = new AtomicLong();
+
+    private ServerSocket serverSocket;
+    private ExecutorService executor;
+
+    public ResourceBlockingProxy(BlockingRules blockingRules) {
+        this.blockingRules = blockingRules;
+    }
+
+    /**
+     * Start listening on a free local port.
+     *
+     * @return this <code>ResourceBlockingProxy</code>, started.
+     * @throws IOException if we cannot bind a port.
+     */
+    public ResourceBlockingProxy start() throws IOException {
+        serverSocket = new ServerSocket();
+        serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "resource-blocking-proxy");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.execute(this::acceptConnections);
+        return this;
+    }
+
+    /**
+     * Stop the proxy and drop every open connection.
+     */
+    public void stop() {
+        try {
+            if (serverSocket != null) {
+                serverSocket.close();
+            }
+        } catch (IOException ex) {
+            //We are shutting down anyway.
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * @return the <code>host:port</code> that the browser should use as its
+     * proxy.
+     */
+    public String getAddress() {
+        return serverSocket.getInetAddress().getHostAddress() + ":" + serverSocket.getLocalPort();
+    }
+
+    /**
+     * @return the rules of this proxy, for instance to allow more resources
+     * for the current test.
+     */
+    public BlockingRules getBlockingRules() {
+        return blockingRules;
+    }
+
+    /**
+     * Get what went through the proxy since the last call and start counting
+     * from zero again. We call it whenever we report the traffic of a
+     * navigation, see {@link ResourceBlocker}.
+     *
+     * @return the <code>TrafficStats</code> since the last call.
+     */
+    public TrafficStats snapshotAndReset() {
+        return new TrafficStats(blockedRequests.getAndSet(0), allowedRequests.getAndSet(0),
+                blockedConnections.getAndSet(0), allowedConnections.getAndSet(0),
+                allowedBytes.getAndSet(0));
+    }
+
+    private void acceptConnections() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket client = serverSocket.accept();
+                executor.execute(() -> handle(client));
+            } catch (IOException ex) {
+                //The server socket has been closed, we are done.
+                return;
+            }
+        }
+    }
+
+    private void handle(Socket client) {
+        try (Socket browser = client) {
+            InputStream fromBrowser = browser.getInputStream();
+            byte[] head = readRequestHead(fromBrowser);
+            if (head == null) {
+                return;
+            }
+            String headText = new String(head, StandardCharsets.ISO_8859_1);
+            String[] requestLine = headText.substring(0, headText.indexOf("\r\n")).split(" ");
+            if (requestLine.length != 3) {
+                return;
+            }
+
+            if ("CONNECT".equalsIgnoreCase(requestLine[0])) {
+                tunnel(browser, requestLine[1]);
+            } else {
+                forward(browser, requestLine, headText);
+            }
+        } catch (IOException ex) {
+            //The browser or the server went away, nothing to do about it.
+        }
+    }
+
+    private void tunnel(Socket browser, String hostAndPort) throws IOException {
+        int colon = hostAndPort.lastIndexOf(':');
+        String host = colon > 0 ? hostAndPort.substring(0, colon) : hostAndPort;
+        int port = colon > 0 ? Integer.parseInt(hostAndPort.substring(colon + 1)) : 443;
+
+        if (blockingRules.isHostBlocked(host)) {
+            refuse(browser, blockedConnections);
+            return;
+        }
+
+        try (Socket server = new Socket()) {
+            server.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MILLIS);
+            allowedConnections.incrementAndGet();
+            browser.getOutputStream().write(
+                    "HTTP/1.1 200 Connection Established\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+            browser.getOutputStream().flush();
+            pipeBothWays(browser, server);
+        }
+    }
+
+    private void forward(Socket browser, String[] requestLine, String headText) throws IOException {
+        URI target = URI.create(requestLine[1]);
+        String host = target.getHost();
+        if (host == null) {
+            refuse(browser, blockedRequests);
+            return;
+        }
+        if (blockingRules.isBlocked(host, requestLine[1])) {
+            refuse(browser, blockedRequests);
+            return;
+        }
+
+        //Rewrite the request for the server: relative target, no keep alive.
+        String path = target.getRawPath() == null || target.getRawPath().isEmpty() ? "/" : target.getRawPath();
+        if (target.getRawQuery() != null) {
+            path += "?" + target.getRawQuery();
+        }
+        StringBuilder serverHead = new StringBuilder();
+        serverHead.append(requestLine[0]).append(' ').append(path).append(' ').append(requestLine[2]).append("\r\n");
+        for (String header : headText.substring(headText.indexOf("\r\n") + 2).split("\r\n")) {
+            String lowerCaseHeader = header.toLowerCase();
+            if (header.isEmpty() || lowerCaseHeader.startsWith("proxy-connection:")
+                    || lowerCaseHeader.startsWith("connection:")) {
+                continue;
+            }
+            serverHead.append(header).append("\r\n");
+        }
+        serverHead.append("Connection: close\r\n\r\n");
+
+        try (Socket server = new Socket()) {
+            server.connect(new InetSocketAddress(host, target.getPort() > 0 ? target.getPort() : 80),
+                    CONNECT_TIMEOUT_MILLIS);
+            allowedRequests.incrementAndGet();
+            server.getOutputStream().write(serverHead.toString().getBytes(StandardCharsets.ISO_8859_1));
+            server.getOutputStream().flush();
+            pipeBothWays(browser, server);
+        }
+    }
+
+    private void refuse(Socket browser, AtomicLong counter) throws IOException {
+        counter.incrementAndGet();
+        browser.getOutputStream().write(FORBIDDEN_RESPONSE);
+        browser.getOutputStream().flush();
+    }
+
+    /*
+     * Copy the browser's bytes to the server on another thread and the
+     * server's bytes to the browser on this one, until either side closes.
+     */
+    private void pipeBothWays(Socket browser, Socket server) throws IOException {
+        executor.execute(() -> {
+            try {
+                copy(browser.getInputStream(), server.getOutputStream(), null);
+            } catch (IOException ex) {
+                //One of the two sides closed the connection.
+            } finally {
+                closeQuietly(server);
+            }
+        });
+        try {
+            copy(server.getInputStream(), browser.getOutputStream(), allowedBytes);
+        } finally {
+            closeQuietly(browser);
+        }
+    }
+
+    private static void copy(InputStream from, OutputStream to, AtomicLong byteCounter) throws IOException {
+        byte[] buffer = new byte[16 * 1024];
+        int read;
+        while ((read = from.read(buffer)) != -1) {
+            to.write(buffer, 0, read);
+            to.flush();
+            if (byteCounter != null) {
+                byteCounter.addAndGet(read);
+            }
+        }
+    }
+
+    /*
+     * Read the request line and the headers, byte by byte so that we do not
+     * consume any of the body.
+     */
+    private static byte[] readRequestHead(InputStream input) throws IOException {
+        ByteArrayOutputStream head = new ByteArrayOutputStream();
+        int matched = 0;
+        int next;
+        while ((next = input.read()) != -1) {
+            head.write(next);
+            matched = (next == '\r' && (matched == 0 || matched == 2))
+                    || (next == '\n' && (matched == 1 || matched == 3)) ? matched + 1 : (next == '\r' ? 1 : 0);
+            if (matched == 4) {
+                return head.toByteArray();
+            }
+            if (head.size() > MAX_REQUEST_HEAD_BYTES) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException ex) {
+            //Already closed.
+        }
+    }
+}
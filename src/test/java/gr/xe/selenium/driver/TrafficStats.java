@@ -0,0 +1,76 @@
+package gr.xe.selenium.driver;
+
+/**
+ * What went through the {@link ResourceBlockingProxy} of a browser session
+ * during one navigation.
+ *
+ * @author pkalogerop
+ */
+public final class TrafficStats {
+
+    private final long blockedRequests;
+    private final long allowedRequests;
+    private final long blockedConnections;
+    private final long allowedConnections;
+    private final long allowedBytes;
+
+    public TrafficStats(long blockedRequests, long allowedRequests, long blockedConnections,
+            long allowedConnections, long allowedBytes) {
+        this.blockedRequests = blockedRequests;
+        this.allowedRequests = allowedRequests;
+        this.blockedConnections = blockedConnections;
+        this.allowedConnections = allowedConnections;
+        this.allowedBytes = allowedBytes;
+    }
+
+    /**
+     * @return the plain http requests that we refused.
+     */
+    public long getBlockedRequests() {
+        return blockedRequests;
+    }
+
+    /**
+     * @return the plain http requests that we let through.
+     */
+    public long getAllowedRequests() {
+        return allowedRequests;
+    }
+
+    /**
+     * @return the https connections that we refused. One connection may have
+     * carried many requests, which the proxy cannot see.
+     */
+    public long getBlockedConnections() {
+        return blockedConnections;
+    }
+
+    /**
+     * @return the https connections that we tunnelled.
+     */
+    public long getAllowedConnections() {
+        return allowedConnections;
+    }
+
+    /**
+     * @return the bytes that the browser downloaded through the proxy.
+     */
+    public long getAllowedBytes() {
+        return allowedBytes;
+    }
+
+    /**
+     * @return <code>true</code> if nothing went through the proxy.
+     */
+    public boolean isEmpty() {
+        return blockedRequests == 0 && allowedRequests == 0 && blockedConnections == 0
+                && allowedConnections == 0 && allowedBytes == 0;
+    }
+
+    @Override
+    public String toString() {
+        return "blocked " + blockedRequests + " requests and " + blockedConnections
+                + " https connections, allowed " + allowedRequests + " requests and "
+                + allowedConnections + " https connections (" + allowedBytes + " bytes)";
+    }
+}
@@ -0,0 +1,329 @@
+package gr.xe.selenium.load;
+
+import gr.xe.selenium.driver.BrowserFactory;
+import gr.xe.selenium.metrics.LatencyHistogram;
+import gr.xe.selenium.standin.LatencyProfile;
+import gr.xe.selenium.standin.StandInServer;
+import gr.xe.selenium.utilities.SiteUrls;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+
+/**
+ * Replays one of our flows ({@link LoadScenarioEnum}) as load: every virtual
+ * user has its own headless browser and runs the flow again and again, with
+ * some think time in between. The run goes through stages of more and more
+ * users, so that we can see where the response times start to degrade. Run it
+ * with:
+ * <code>mvn -P load test-compile exec:java</code>
+ *
+ * <p>
+ * It is configured with the following system properties:
+ * <ul>
+ * <li><code>load.scenario</code>: <code>property_search</code> (default),
+ * <code>price_filter</code> or <code>land_sale_plot</code></li>
+ * <li><code>load.stages</code>: users and seconds of each stage, default
+ * <code>1x60,2x60,4x60,8x60</code></li>
+ * <li><code>load.thinkTimeMillis</code>: the mean pause between two flows of
+ * a user, default 1000, picked at random between half and one and a half
+ * times that</li>
+ * <li><code>load.kneeFactor</code>: how much slower than in the first stage
+ * the p95 of a flow must be to count as degraded, default 1.5</li>
+ * <li><code>load.reportFile</code>: the JSON report, default
+ * <code>target/load-report.json</code></li>
+ * <li><code>standin</code>: run against the {@link StandInServer}, with
+ * <code>standin.port</code> and <code>standin.latency</code> as for the
+ * suite</li>
+ * </ul>
+ * The browsers are launched by the {@link BrowserFactory}, so the
+ * <code>browser.*</code> properties apply too. The browsers of a stage are
+ * launched before its clock starts.
+ *
+ * @author pkalogerop
+ */
+public final class LoadRunner {
+
+    private final LoadScenarioEnum scenario;
+    private final long thinkTimeMillis;
+    private final List<VirtualUser> users = new ArrayList<>();
+    private volatile LoadStageMetrics currentStage;
+
+    private LoadRunner(LoadScenarioEnum scenario, long thinkTimeMillis) {
+        this.scenario = scenario;
+        this.thinkTimeMillis = thinkTimeMillis;
+    }
+
+    public static void main(String[] args) throws Exception {
+        //Nobody reads the page timings of a load run, do not pay for them.
+        if (System.getProperty("metrics.pageTiming") == null) {
+            System.setProperty("metrics.pageTiming", "false");
+        }
+        LoadScenarioEnum scenario = LoadScenarioEnum.fromName(System.getProperty("load.scenario", "property_search"));
+        List<int[]> stages = parseStages(System.getProperty("load.stages", "1x60,2x60,4x60,8x60"));
+        double kneeFactor = Double.parseDouble(System.getProperty("load.kneeFactor", "1.5"));
+
+        StandInServer standInServer = null;
+        if (Boolean.getBoolean("standin")) {
+            standInServer = new StandInServer(LatencyProfile.parse(System.getProperty("standin.latency")))
+                    .start(Integer.getInteger("standin.port", 0));
+            SiteUrls.setBaseUrls(standInServer.getBaseUrl(), standInServer.getBaseUrl());
+            System.out.println("Running against the stand-in server at " + standInServer.getBaseUrl());
+        }
+
+        LoadRunner loadRunner = new LoadRunner(scenario, Long.getLong("load.thinkTimeMillis", 1000));
+        List<LoadStageMetrics> results = new ArrayList<>();
+        try {
+            System.out.println("Load scenario " + scenario + ": " + scenario.getFlow());
+            for (int[] stage : stages) {
+                LoadStageMetrics stageMetrics = loadRunner.runStage(stage[0], stage[1]);
+                results.add(stageMetrics);
+                System.out.println(stageMetrics);
+            }
+        } finally {
+            loadRunner.stopUsers();
+            if (standInServer != null) {
+                standInServer.stop();
+            }
+        }
+
+        LoadStageMetrics knee = findKnee(results, kneeFactor);
+        System.out.println(knee == null
+                ? "Response times did not degrade up to " + results.get(results.size() - 1).getUsers() + " users."
+                : "Response times degrade at " + knee.getUsers() + " users: flow p95 "
+                        + knee.getPercentileMillis(LoadStageMetrics.FLOW, 0.95) + "ms against "
+                        + results.get(0).getPercentileMillis(LoadStageMetrics.FLOW, 0.95) + "ms with "
+                        + results.get(0).getUsers() + ".");
+        writeReport(new File(System.getProperty("load.reportFile", "target/load-report.json")),
+                scenario, stages, results, knee);
+    }
+
+    /*
+     * Launch the browsers of the new users while nobody is recording, then
+     * let everybody record into the new stage for its duration.
+     */
+    private LoadStageMetrics runStage(int userCount, int seconds) throws InterruptedException {
+        currentStage = null;
+        while (users.size() > userCount) {
+            VirtualUser user = users.remove(users.size() - 1);
+            user.stopUser();
+            user.join();
+        }
+        CountDownLatch launched = new CountDownLatch(userCount - users.size());
+        while (users.size() < userCount) {
+            VirtualUser user = new VirtualUser(users.size() + 1, launched);
+            users.add(user);
+            user.start();
+        }
+        launched.await();
+        int running = 0;
+        for (VirtualUser user : users) {
+            running += user.running ? 1 : 0;
+        }
+        if (running == 0) {
+            throw new IllegalStateException("None of the " + userCount + " virtual users could launch a browser.");
+        }
+        if (running < userCount) {
+            System.out.println("Only " + running + " of " + userCount + " virtual users could launch a browser.");
+        }
+
+        //Users that never ran must not count in the throughput per user.
+        LoadStageMetrics stageMetrics = new LoadStageMetrics(running);
+        stageMetrics.start();
+        currentStage = stageMetrics;
+        Thread.sleep(seconds * 1000L);
+        currentStage = null;
+        stageMetrics.finish();
+        return stageMetrics;
+    }
+
+    private void stopUsers() throws InterruptedException {
+        currentStage = null;
+        for (VirtualUser user : users) {
+            user.stopUser();
+        }
+        for (VirtualUser user : users) {
+            user.join();
+        }
+        users.clear();
+    }
+
+    /**
+     * The first stage whose flows are much slower than those of the first
+     * stage, or whose users complete much fewer flows each.
+     *
+     * @param results the stages, in the order they ran.
+     * @param kneeFactor how much worse than the first stage counts as
+     * degraded.
+     * @return the first degraded stage, or <code>null</code> if none is.
+     */
+    static LoadStageMetrics findKnee(List<LoadStageMetrics> results, double kneeFactor) {
+        if (results.isEmpty()) {
+            return null;
+        }
+        LoadStageMetrics baseline = results.get(0);
+        long baselineP95 = baseline.getPercentileMillis(LoadStageMetrics.FLOW, 0.95);
+        double baselinePerUser = baseline.getFlowsPerMinute() / baseline.getUsers();
+        for (LoadStageMetrics stage : results.subList(1, results.size())) {
+            boolean slower = stage.getPercentileMillis(LoadStageMetrics.FLOW, 0.95) > baselineP95 * kneeFactor;
+            boolean saturated = stage.getFlowsPerMinute() / stage.getUsers() < baselinePerUser / kneeFactor;
+            if (slower || saturated) {
+                return stage;
+            }
+        }
+        return null;
+    }
+
+    private static List<int[]> parseStages(String stages) {
+        List<int[]> parsed = new ArrayList<>();
+        for (String stage : stages.split(",")) {
+            String[] usersAndSeconds = stage.trim().toLowerCase(Locale.ROOT).split("x");
+            try {
+                int userCount = Integer.parseInt(usersAndSeconds[0].trim());
+                int seconds = Integer.parseInt(usersAndSeconds[1].trim());
+                if (userCount < 1 || seconds < 1) {
+                    throw new IllegalArgumentException("A stage needs at least 1 user for 1 second: " + stage);
+                }
+                parsed.add(new int[]{userCount, seconds});
+            } catch (RuntimeException ex) {
+                throw new IllegalArgumentException("load.stages must be like 1x60,2x60 (users x seconds), not "
+                        + stages, ex);
+            }
+        }
+        return parsed;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void writeReport(File reportFile, LoadScenarioEnum scenario, List<int[]> stages,
+            List<LoadStageMetrics> results, LoadStageMetrics knee) throws IOException {
+        JSONObject report = new JSONObject();
+        report.put("scenario", scenario.name());
+        report.put("flow", scenario.getFlow().getName());
+        JSONArray stageEntries = new JSONArray();
+        for (int i = 0; i < results.size(); i++) {
+            LoadStageMetrics stageMetrics = results.get(i);
+            JSONObject entry = new JSONObject();
+            entry.put("users", stageMetrics.getUsers());
+            entry.put("seconds", stages.get(i)[1]);
+            entry.put("completedFlows", stageMetrics.getCompletedFlows());
+            entry.put("failedFlows", stageMetrics.getFailedFlows());
+            entry.put("flowsPerMinute", stageMetrics.getFlowsPerMinute());
+            JSONObject steps = new JSONObject();
+            for (Map.Entry<String, LatencyHistogram> step : stageMetrics.getHistograms().entrySet()) {
+                steps.put(step.getKey(), step.getValue().toMap());
+            }
+            entry.put("steps", steps);
+            stageEntries.add(entry);
+        }
+        report.put("stages", stageEntries);
+        report.put("kneeUsers", knee == null ? null : knee.getUsers());
+
+        File parent = reportFile.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(reportFile), StandardCharsets.UTF_8)) {
+            report.writeJSONString(writer);
+        }
+        System.out.println("Load report written to " + reportFile.getAbsolutePath());
+    }
+
+    /**
+     * One user with its own browser, running the flow of the scenario until it
+     * is stopped.
+     */
+    private final class VirtualUser extends Thread {
+
+        private final CountDownLatch launched;
+        private volatile boolean running = true;
+        private WebDriver webDriver;
+
+        VirtualUser(int number, CountDownLatch launched) {
+            super("virtual-user-" + number);
+            this.launched = launched;
+        }
+
+        @Override
+        public void run() {
+            try {
+                webDriver = BrowserFactory.createBrowser();
+            } catch (RuntimeException ex) {
+                System.out.println(getName() + " could not launch its browser: " + ex.getMessage());
+                running = false;
+            } finally {
+                launched.countDown();
+            }
+            try {
+                while (running) {
+                    LoadStageMetrics stageMetrics = currentStage;
+                    if (stageMetrics == null) {
+                        //Between stages.
+                        Thread.sleep(50);
+                        continue;
+                    }
+                    runFlow(stageMetrics);
+                    long thinkTime = thinkTimeMillis <= 0 ? 0
+                            : ThreadLocalRandom.current().nextLong(thinkTimeMillis / 2, thinkTimeMillis * 3 / 2 + 1);
+                    Thread.sleep(thinkTime);
+                }
+            } catch (InterruptedException ex) {
+                //Stopped while thinking.
+            } finally {
+                if (webDriver != null) {
+                    webDriver.quit();
+                }
+            }
+        }
+
+        private void runFlow(LoadStageMetrics stageMetrics) {
+            LoadStageMetrics.setCurrent(stageMetrics);
+            long start = System.nanoTime();
+            try {
+                scenario.getFlow().replay(webDriver);
+                stageMetrics.recordFlow(System.nanoTime() - start);
+            } catch (RuntimeException ex) {
+                //The step that failed has logged it, if it was the first time.
+                stageMetrics.recordFailure();
+                replaceBrowserIfDead();
+            } finally {
+                LoadStageMetrics.setCurrent(null);
+            }
+        }
+
+        private void replaceBrowserIfDead() {
+            try {
+                webDriver.getWindowHandle();
+            } catch (WebDriverException ex) {
+                try {
+                    webDriver.quit();
+                } catch (WebDriverException quitEx) {
+                    //It is gone already.
+                }
+                webDriver = null;
+                try {
+                    webDriver = BrowserFactory.createBrowser();
+                } catch (RuntimeException launchEx) {
+                    System.out.println(getName() + " could not replace its browser: " + launchEx.getMessage());
+                    running = false;
+                }
+            }
+        }
+
+        void stopUser() {
+            running = false;
+            interrupt();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package gr.xe.selenium.load;
+
+import gr.xe.selenium.pom.Flow;
+import gr.xe.selenium.pom.SearchFlows;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * This <code>Enum</code> contains the flows of our tests that the
+ * {@link LoadRunner} can replay as load scenarios. They are the very
+ * {@link SearchFlows} that the tests use, only every step is timed into the
+ * {@link LoadStageMetrics} of the virtual user that runs it.
+ * @author pkalogerop
+ */
+public enum LoadScenarioEnum {
+
+    /*
+     * Main Page, property tab, search.
+     */
+    PROPERTY_SEARCH(SearchFlows.PROPERTY_SEARCH.wrapSteps(LoadScenarioEnum::timed)),
+    /*
+     * Buy a residence, search, then filter by a minimum price.
+     */
+    PRICE_FILTER(SearchFlows.priceFilter(500000).wrapSteps(LoadScenarioEnum::timed)),
+    /*
+     * Land for sale from the Main Page, search, then the plot filter.
+     */
+    LAND_SALE_PLOT(SearchFlows.LAND_SALE_PLOT.wrapSteps(LoadScenarioEnum::timed));
+
+    private final Flow<?> flow;
+
+    LoadScenarioEnum(Flow<?> flow) {
+        this.flow = flow;
+    }
+
+    /**
+     * @return the flow of the scenario, with every step timed.
+     */
+    public Flow<?> getFlow() {
+        return flow;
+    }
+
+    /**
+     * @param scenario the name of a scenario, in any case, such as
+     * <code>price_filter</code>.
+     * @return the <code>LoadScenarioEnum</code> of that name.
+     */
+    public static LoadScenarioEnum fromName(String scenario) {
+        try {
+            return valueOf(scenario.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Unknown load scenario " + scenario
+                    + ", use property_search, price_filter or land_sale_plot", ex);
+        }
+    }
+
+    private static <T, R> Function<T, R> timed(String step, Function<T, R> function) {
+        return input -> {
+            long start = System.nanoTime();
+            R result;
+            try {
+                result = function.apply(input);
+            } catch (RuntimeException ex) {
+                LoadStageMetrics.recordCurrentStepFailure(step, ex);
+                throw ex;
+            }
+            LoadStageMetrics.recordCurrentStep(step, System.nanoTime() - start);
+            return result;
+        };
+    }
+}
@@ -0,0 +1,186 @@
+package gr.xe.selenium.load;
+
+import gr.xe.selenium.metrics.LatencyHistogram;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * What the virtual users of one stage of a load run did: how many flows they
+ * completed or failed and a {@link LatencyHistogram} of every step, plus one
+ * of the whole flow. The steps of a flow record themselves into the stage of
+ * the virtual user that runs them (see {@link #setCurrent(LoadStageMetrics)
+ * setCurrent}). The first failure of each step in a stage is logged, so a
+ * broken step is not only visible as a failure count.
+ *
+ * @author pkalogerop
+ */
+public class LoadStageMetrics {
+
+    /**
+     * The name of the histogram of whole flows.
+     */
+    public static final String FLOW = "(flow)";
+
+    private static final ThreadLocal<LoadStageMetrics> CURRENT = new ThreadLocal<>();
+
+    private final int users;
+    //In the order that the steps first ran.
+    private final Map<String, LatencyHistogram> histograms = Collections.synchronizedMap(new LinkedHashMap<>());
+    private final AtomicLong completedFlows = new AtomicLong();
+    private final AtomicLong failedFlows = new AtomicLong();
+    private final Map<String, RuntimeException> firstStepFailures = new ConcurrentHashMap<>();
+    private volatile long startNanos;
+    private volatile long endNanos;
+
+    /**
+     * @param users the virtual users of the stage.
+     */
+    public LoadStageMetrics(int users) {
+        this.users = users;
+    }
+
+    /**
+     * Record the steps that the current thread runs into the given stage.
+     *
+     * @param stageMetrics the stage of the virtual user of this thread, or
+     * <code>null</code> to stop recording.
+     */
+    static void setCurrent(LoadStageMetrics stageMetrics) {
+        if (stageMetrics == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(stageMetrics);
+        }
+    }
+
+    /**
+     * Record one step into the stage of the current thread, if any.
+     *
+     * @param step the name of the step.
+     * @param nanos how long the step took.
+     */
+    static void recordCurrentStep(String step, long nanos) {
+        LoadStageMetrics stageMetrics = CURRENT.get();
+        //Like whole flows, steps that end after the stage belong to no stage.
+        if (stageMetrics != null && stageMetrics.endNanos == 0) {
+            stageMetrics.histograms.computeIfAbsent(step, name -> new LatencyHistogram()).record(nanos);
+        }
+    }
+
+    /**
+     * Record that a step failed in the stage of the current thread, if any,
+     * and log the failure if it is the first of that step in the stage.
+     *
+     * @param step the name of the step.
+     * @param failure why the step failed.
+     */
+    static void recordCurrentStepFailure(String step, RuntimeException failure) {
+        LoadStageMetrics stageMetrics = CURRENT.get();
+        if (stageMetrics != null && stageMetrics.endNanos == 0
+                && stageMetrics.firstStepFailures.putIfAbsent(step, failure) == null) {
+            System.out.println("First failure of step \"" + step + "\" with " + stageMetrics.users
+                    + " users: " + failure);
+        }
+    }
+
+    void start() {
+        startNanos = System.nanoTime();
+    }
+
+    void finish() {
+        endNanos = System.nanoTime();
+    }
+
+    /*
+     * Flows that were still running when the stage finished belong to no
+     * stage, they ran under two different loads.
+     */
+    void recordFlow(long nanos) {
+        if (endNanos > 0) {
+            return;
+        }
+        completedFlows.incrementAndGet();
+        histograms.computeIfAbsent(FLOW, name -> new LatencyHistogram()).record(nanos);
+    }
+
+    void recordFailure() {
+        if (endNanos > 0) {
+            return;
+        }
+        failedFlows.incrementAndGet();
+    }
+
+    /**
+     * @return the virtual users of the stage.
+     */
+    public int getUsers() {
+        return users;
+    }
+
+    /**
+     * @return the flows that were completed during the stage.
+     */
+    public long getCompletedFlows() {
+        return completedFlows.get();
+    }
+
+    /**
+     * @return the flows that failed during the stage.
+     */
+    public long getFailedFlows() {
+        return failedFlows.get();
+    }
+
+    /**
+     * @return the completed flows per minute of the stage.
+     */
+    public double getFlowsPerMinute() {
+        long elapsedNanos = (endNanos > 0 ? endNanos : System.nanoTime()) - startNanos;
+        return elapsedNanos <= 0 ? 0 : completedFlows.get() * 60e9 / elapsedNanos;
+    }
+
+    /**
+     * @param step the name of a step, or {@link #FLOW}.
+     * @param percentile between <code>0</code> and <code>1</code>.
+     * @return the percentile of the step in milliseconds, or <code>0</code> if
+     * it never ran.
+     */
+    public long getPercentileMillis(String step, double percentile) {
+        LatencyHistogram histogram = histograms.get(step);
+        return histogram == null ? 0 : histogram.getPercentileMicros(percentile) / 1000;
+    }
+
+    /**
+     * @return the histograms of the stage by step, in the order that the
+     * steps ran, with the whole flow last.
+     */
+    public Map<String, LatencyHistogram> getHistograms() {
+        Map<String, LatencyHistogram> ordered;
+        synchronized (histograms) {
+            ordered = new LinkedHashMap<>(histograms);
+        }
+        LatencyHistogram flow = ordered.remove(FLOW);
+        if (flow != null) {
+            ordered.put(FLOW, flow);
+        }
+        return ordered;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder table = new StringBuilder(String.format(
+                "%d users: %d flows (%.1f/min), %d failed%n  %-24s %8s %8s %8s %8s %8s%n",
+                users, getCompletedFlows(), getFlowsPerMinute(), getFailedFlows(),
+                "step", "count", "p50 ms", "p95 ms", "p99 ms", "max ms"));
+        for (Map.Entry<String, LatencyHistogram> entry : getHistograms().entrySet()) {
+            LatencyHistogram histogram = entry.getValue();
+            table.append(String.format("  %-24s %8d %8d %8d %8d %8d%n", entry.getKey(), histogram.getCount(),
+                    histogram.getPercentileMicros(0.50) / 1000, histogram.getPercentileMicros(0.95) / 1000,
+                    histogram.getPercentileMicros(0.99) / 1000, histogram.getMaxMicros() / 1000));
+        }
+        return table.toString();
+    }
+}
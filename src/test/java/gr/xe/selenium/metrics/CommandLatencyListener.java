@@ -0,0 +1,131 @@
+package gr.xe.selenium.metrics;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+import org.testng.ITestListener;
+import org.testng.ITestResult;
+import org.testng.Reporter;
+
+/**
+ * Attaches the WebDriver command latencies of every test to its TestNG result
+ * and writes them, along with the totals of the whole suite, to
+ * <code>command-latencies-&lt;suite&gt;.json</code> next to the surefire
+ * reports (<code>-Dmetrics.reportsDir</code>). Each test gets a
+ * {@link CommandMetrics} attribute named {@value #RESULT_ATTRIBUTE} and a
+ * table of its commands in its reporter output.
+ *
+ * <p>
+ * Only the commands of an {@link InstrumentedWebDriver instrumented}
+ * <code>WebDriver</code> are recorded.
+ *
+ * @author pkalogerop
+ */
+public class CommandLatencyListener implements ISuiteListener, ITestListener {
+
+    /**
+     * The name of the <code>ITestResult</code> attribute with the
+     * <code>CommandMetrics</code> of the test.
+     */
+    public static final String RESULT_ATTRIBUTE = "commandLatencies";
+
+    private final Queue<JSONObject> testEntries = new ConcurrentLinkedQueue<>();
+
+    @Override
+    public void onStart(ISuite suite) {
+        testEntries.clear();
+        CommandMetrics.getSuiteMetrics().clear();
+    }
+
+    @Override
+    public void onTestStart(ITestResult result) {
+        CommandMetrics.startTest();
+    }
+
+    @Override
+    public void onTestSuccess(ITestResult result) {
+        finishTest(result);
+    }
+
+    @Override
+    public void onTestFailure(ITestResult result) {
+        finishTest(result);
+    }
+
+    @Override
+    public void onTestSkipped(ITestResult result) {
+        finishTest(result);
+    }
+
+    @Override
+    public void onTestFailedWithTimeout(ITestResult result) {
+        finishTest(result);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void onFinish(ISuite suite) {
+        JSONObject report = new JSONObject();
+        report.put("suite", suite.getName());
+        report.put("commands", CommandMetrics.getSuiteMetrics().toMap());
+        JSONArray tests = new JSONArray();
+        tests.addAll(testEntries);
+        report.put("tests", tests);
+
+        File reportsDir = new File(System.getProperty("metrics.reportsDir", "target/surefire-reports"));
+        File reportFile = new File(reportsDir, "command-latencies-" + suite.getName().replaceAll("\\W+", "_") + ".json");
+        reportsDir.mkdirs();
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(reportFile), StandardCharsets.UTF_8)) {
+            report.writeJSONString(writer);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not write " + reportFile, ex);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void finishTest(ITestResult result) {
+        CommandMetrics testMetrics = CommandMetrics.finishTest();
+        if (testMetrics == null || testMetrics.isEmpty()) {
+            return;
+        }
+        result.setAttribute(RESULT_ATTRIBUTE, testMetrics);
+
+        //Log through the result of the test, this may not run on the thread of the test.
+        ITestResult currentResult = Reporter.getCurrentTestResult();
+        Reporter.setCurrentTestResult(result);
+        Reporter.log("WebDriver commands:\n" + testMetrics);
+        Reporter.setCurrentTestResult(currentResult);
+
+        JSONObject entry = new JSONObject();
+        entry.put("name", result.getTestClass().getRealClass().getSimpleName() + "." + result.getMethod().getMethodName());
+        entry.put("status", statusOf(result));
+        entry.put("wallMillis", result.getEndMillis() - result.getStartMillis());
+        Map<String, Map<String, Long>> commands = testMetrics.toMap();
+        entry.put("commands", commands);
+        testEntries.add(entry);
+    }
+
+    private static String statusOf(ITestResult result) {
+        switch (result.getStatus()) {
+            case ITestResult.SUCCESS:
+                return "SUCCESS";
+            case ITestResult.FAILURE:
+                return "FAILURE";
+            case ITestResult.SKIP:
+                return "SKIP";
+            default:
+                return String.valueOf(result.getStatus());
+        }
+    }
+}
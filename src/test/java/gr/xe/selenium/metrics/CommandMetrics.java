@@ -0,0 +1,127 @@
+package gr.xe.selenium.metrics;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per command {@link LatencyHistogram}s of the WebDriver commands that we send,
+ * such as <code>findElement</code>, <code>click</code> or <code>get</code>.
+ * The {@link InstrumentedWebDriver} records every command twice: once for the
+ * whole suite and once for the test that is running on the current thread, if
+ * any (see {@link CommandLatencyListener}).
+ *
+ * @author pkalogerop
+ */
+public class CommandMetrics {
+
+    private static final CommandMetrics SUITE = new CommandMetrics();
+    private static final ThreadLocal<CommandMetrics> CURRENT_TEST = new ThreadLocal<>();
+
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    /**
+     * @return the metrics of every command sent since the suite started.
+     */
+    public static CommandMetrics getSuiteMetrics() {
+        return SUITE;
+    }
+
+    /**
+     * Record the commands of the current thread separately from now on,
+     * because a test is starting on it.
+     */
+    public static void startTest() {
+        CURRENT_TEST.set(new CommandMetrics());
+    }
+
+    /**
+     * Stop recording the commands of the current thread separately.
+     *
+     * @return the metrics of the commands that the current thread sent since
+     * {@link #startTest() startTest}, or <code>null</code> if no test was
+     * started on it.
+     */
+    public static CommandMetrics finishTest() {
+        CommandMetrics testMetrics = CURRENT_TEST.get();
+        CURRENT_TEST.remove();
+        return testMetrics;
+    }
+
+    static void recordCommand(String command, long nanos) {
+        SUITE.record(command, nanos);
+        CommandMetrics testMetrics = CURRENT_TEST.get();
+        if (testMetrics != null) {
+            testMetrics.record(command, nanos);
+        }
+    }
+
+    /**
+     * Record one command.
+     *
+     * @param command the name of the command.
+     * @param nanos how long the command took, in nanoseconds.
+     */
+    public void record(String command, long nanos) {
+        histograms.computeIfAbsent(command, name -> new LatencyHistogram()).record(nanos);
+    }
+
+    /**
+     * Forget everything recorded so far.
+     */
+    public void clear() {
+        histograms.clear();
+    }
+
+    /**
+     * @return <code>true</code> if no command has been recorded.
+     */
+    public boolean isEmpty() {
+        return histograms.isEmpty();
+    }
+
+    /**
+     * @return the histogram of every command, the one that took the most time
+     * in total first.
+     */
+    public Map<String, LatencyHistogram> getHistograms() {
+        List<Map.Entry<String, LatencyHistogram>> entries = new ArrayList<>(histograms.entrySet());
+        entries.sort((first, second) -> Long.compare(
+                second.getValue().getTotalMicros(), first.getValue().getTotalMicros()));
+        Map<String, LatencyHistogram> sorted = new LinkedHashMap<>();
+        for (Map.Entry<String, LatencyHistogram> entry : entries) {
+            sorted.put(entry.getKey(), entry.getValue());
+        }
+        return sorted;
+    }
+
+    /**
+     * @return a summary of every command, ready to be written as JSON.
+     */
+    public Map<String, Map<String, Long>> toMap() {
+        Map<String, Map<String, Long>> summary = new LinkedHashMap<>();
+        for (Map.Entry<String, LatencyHistogram> entry : getHistograms().entrySet()) {
+            summary.put(entry.getKey(), entry.getValue().toMap());
+        }
+        return summary;
+    }
+
+    /**
+     * @return a plain text table of every command, in milliseconds.
+     */
+    @Override
+    public String toString() {
+        StringBuilder table = new StringBuilder(String.format("%-28s %7s %10s %8s %8s %8s %8s%n",
+                "command", "count", "total ms", "p50", "p95", "p99", "max"));
+        for (Map.Entry<String, LatencyHistogram> entry : getHistograms().entrySet()) {
+            LatencyHistogram histogram = entry.getValue();
+            table.append(String.format("%-28s %7d %10.1f %8.1f %8.1f %8.1f %8.1f%n", entry.getKey(),
+                    histogram.getCount(), histogram.getTotalMicros() / 1000.0,
+                    histogram.getPercentileMicros(0.50) / 1000.0, histogram.getPercentileMicros(0.95) / 1000.0,
+                    histogram.getPercentileMicros(0.99) / 1000.0, histogram.getMaxMicros() / 1000.0));
+        }
+        return table.toString();
+    }
+}
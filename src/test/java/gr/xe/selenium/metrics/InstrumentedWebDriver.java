@@ -0,0 +1,186 @@
+package gr.xe.selenium.metrics;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.WrapsElement;
+
+/**
+ * Wraps a <code>WebDriver</code> so that every command that it sends to the
+ * browser is timed into {@link CommandMetrics}. The elements, the lists of
+ * elements and the <code>manage()</code>, <code>navigate()</code> and
+ * <code>switchTo()</code> objects that it returns are wrapped as well, so
+ * <code>click</code> or <code>getText</code> on an element are timed too.
+ *
+ * <p>
+ * The wrapper implements every interface of the wrapped driver, so code that
+ * checks for <code>JavascriptExecutor</code> or <code>HasCapabilities</code>
+ * keeps working. Commands are named after their method, with a prefix for the
+ * nested objects, for instance <code>findElement</code>, <code>click</code>
+ * and <code>navigate.to</code>.
+ *
+ * @author pkalogerop
+ */
+public final class InstrumentedWebDriver {
+
+    private InstrumentedWebDriver() {
+    }
+
+    /**
+     * @return <code>true</code> unless we run with
+     * <code>-Dmetrics.commands=false</code>.
+     */
+    public static boolean isEnabled() {
+        return Boolean.parseBoolean(System.getProperty("metrics.commands", "true"));
+    }
+
+    /**
+     * Wrap the given driver.
+     *
+     * @param webDriver the driver that talks to the browser.
+     * @return a <code>WebDriver</code> that times every command.
+     */
+    public static WebDriver instrument(WebDriver webDriver) {
+        return (WebDriver) wrap(webDriver, "", false);
+    }
+
+    /**
+     * Get the object behind one of our wrappers.
+     *
+     * @param object a driver, an element or anything else.
+     * @return the wrapped object, or the object itself if it is not one of our
+     * wrappers.
+     */
+    public static Object unwrap(Object object) {
+        if (object != null && Proxy.isProxyClass(object.getClass())) {
+            InvocationHandler handler = Proxy.getInvocationHandler(object);
+            if (handler instanceof TimingHandler) {
+                return ((TimingHandler) handler).target;
+            }
+        }
+        return object;
+    }
+
+    private static Object wrap(Object target, String prefix, boolean isElement) {
+        Set<Class<?>> interfaces = new LinkedHashSet<>();
+        for (Class<?> type = target.getClass(); type != null; type = type.getSuperclass()) {
+            collectPublicInterfaces(type, interfaces);
+        }
+        if (isElement) {
+            //Lets Selenium send our element to the browser, for instance as a script argument.
+            interfaces.add(WrapsElement.class);
+        }
+        return Proxy.newProxyInstance(InstrumentedWebDriver.class.getClassLoader(),
+                interfaces.toArray(new Class<?>[0]), new TimingHandler(target, prefix));
+    }
+
+    private static void collectPublicInterfaces(Class<?> type, Set<Class<?>> interfaces) {
+        for (Class<?> implemented : type.getInterfaces()) {
+            if (Modifier.isPublic(implemented.getModifiers())) {
+                interfaces.add(implemented);
+            }
+            collectPublicInterfaces(implemented, interfaces);
+        }
+    }
+
+    private static class TimingHandler implements InvocationHandler {
+
+        private final Object target;
+        private final String prefix;
+
+        TimingHandler(Object target, String prefix) {
+            this.target = target;
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                return invokeObjectMethod(method, args);
+            }
+            if (method.getDeclaringClass() == WrapsElement.class) {
+                return target;
+            }
+
+            Object[] targetArgs = unwrapArguments(args);
+            Class<?> returnType = method.getReturnType();
+            if (isNested(returnType)) {
+                //manage(), navigate(), window() and so on do not talk to the browser.
+                return wrap(invokeOnTarget(method, targetArgs), prefix + method.getName() + ".", false);
+            }
+
+            long start = System.nanoTime();
+            try {
+                return wrapResult(invokeOnTarget(method, targetArgs));
+            } finally {
+                CommandMetrics.recordCommand(prefix + method.getName(), System.nanoTime() - start);
+            }
+        }
+
+        private Object invokeObjectMethod(Method method, Object[] args) {
+            switch (method.getName()) {
+                case "equals":
+                    return target.equals(unwrap(args[0]));
+                case "hashCode":
+                    return target.hashCode();
+                default:
+                    return target.toString();
+            }
+        }
+
+        private Object invokeOnTarget(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException ex) {
+                throw ex.getCause();
+            }
+        }
+
+        private static boolean isNested(Class<?> returnType) {
+            return returnType.isInterface() && returnType.getDeclaringClass() == WebDriver.class;
+        }
+
+        private static Object wrapResult(Object result) {
+            if (result instanceof WebElement && unwrap(result) == result) {
+                return wrap(result, "", true);
+            }
+            if (result instanceof List) {
+                List<?> values = (List<?>) result;
+                if (values.isEmpty() || !(values.get(0) instanceof WebElement)) {
+                    return result;
+                }
+                List<Object> wrapped = new ArrayList<>(values.size());
+                for (Object value : values) {
+                    wrapped.add(wrapResult(value));
+                }
+                return wrapped;
+            }
+            return result;
+        }
+
+        private static Object[] unwrapArguments(Object[] args) {
+            if (args == null) {
+                return null;
+            }
+            Object[] unwrapped = (Object[]) Array.newInstance(args.getClass().getComponentType(), args.length);
+            for (int i = 0; i < args.length; i++) {
+                if (args[i] instanceof Object[]) {
+                    //The arguments of executeScript.
+                    unwrapped[i] = unwrapArguments((Object[]) args[i]);
+                } else {
+                    unwrapped[i] = unwrap(args[i]);
+                }
+            }
+            return unwrapped;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package gr.xe.selenium.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A latency histogram with a fixed memory footprint, no matter how many values
+ * it records. Values are kept in microseconds, in buckets that are exact up
+ * to 16µs and then get wider with the value, so that every bucket is within
+ * about 6% of the values it holds. That is plenty for telling a 2ms
+ * <code>findElement</code> from a 40ms one. The maximum is kept exactly.
+ *
+ * <p>
+ * Recording is lock free, so many threads can share a histogram.
+ *
+ * @author pkalogerop
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = SUB_BUCKETS + (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalMicros = new AtomicLong();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    /**
+     * Record one latency.
+     *
+     * @param nanos the latency in nanoseconds.
+     */
+    public void record(long nanos) {
+        long micros = Math.max(0, nanos / 1000);
+        counts.incrementAndGet(bucketOf(micros));
+        count.incrementAndGet();
+        totalMicros.addAndGet(micros);
+        long max;
+        while (micros > (max = maxMicros.get()) && !maxMicros.compareAndSet(max, micros)) {
+            //Another thread raised the maximum meanwhile, try again.
+        }
+    }
+
+    /**
+     * @return how many latencies we have recorded.
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * @return the sum of all recorded latencies, in microseconds.
+     */
+    public long getTotalMicros() {
+        return totalMicros.get();
+    }
+
+    /**
+     * @return the largest recorded latency, in microseconds.
+     */
+    public long getMaxMicros() {
+        return maxMicros.get();
+    }
+
+    /**
+     * Get a percentile of the recorded latencies, for instance the median
+     * with <code>0.5</code>.
+     *
+     * @param percentile between <code>0</code> and <code>1</code>.
+     * @return the upper bound of the bucket that holds the percentile, in
+     * microseconds, or <code>0</code> if nothing has been recorded.
+     */
+    public long getPercentileMicros(double percentile) {
+        long total = count.get();
+        if (total == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(percentile * total));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += counts.get(bucket);
+            if (seen >= target) {
+                return Math.min(upperBoundOf(bucket), getMaxMicros());
+            }
+        }
+        return getMaxMicros();
+    }
+
+    /**
+     * @return count, total, p50, p95, p99 and max, in microseconds, ready to
+     * be written as JSON.
+     */
+    public Map<String, Long> toMap() {
+        Map<String, Long> summary = new LinkedHashMap<>();
+        summary.put("count", getCount());
+        summary.put("totalMicros", getTotalMicros());
+        summary.put("p50Micros", getPercentileMicros(0.50));
+        summary.put("p95Micros", getPercentileMicros(0.95));
+        summary.put("p99Micros", getPercentileMicros(0.99));
+        summary.put("maxMicros", getMaxMicros());
+        return summary;
+    }
+
+    private static int bucketOf(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (micros >>> shift) & (SUB_BUCKETS - 1);
+        return SUB_BUCKETS + shift * SUB_BUCKETS + subBucket;
+    }
+
+    private static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+        int subBucket = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + subBucket + 1) << shift) - 1;
+    }
+}
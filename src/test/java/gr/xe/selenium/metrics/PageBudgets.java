@@ -0,0 +1,85 @@
+package gr.xe.selenium.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The performance budgets of our pages, from the system properties
+ * <code>budget.&lt;page&gt;.&lt;metric&gt;</code>, for instance
+ * <code>-Dbudget.results.load=5000</code>. The pages are <code>main</code>,
+ * <code>results</code> and <code>login</code>, and
+ * <code>budget.default.&lt;metric&gt;</code> applies to every page without
+ * a budget of its own. The metrics are:
+ * <ul>
+ * <li><code>ttfb</code>, <code>domContentLoaded</code> and
+ * <code>load</code>, in milliseconds</li>
+ * <li><code>transferBytes</code>, in bytes</li>
+ * <li><code>requests</code>, a number of requests</li>
+ * </ul>
+ * A page without any budget is only reported.
+ *
+ * @author pkalogerop
+ */
+public final class PageBudgets {
+
+    private PageBudgets() {
+    }
+
+    /**
+     * @param page the name of the page.
+     * @param metric the name of the metric.
+     * @return the budget of the metric for the page, or <code>-1</code> if
+     * there is none.
+     */
+    public static long getBudget(String page, String metric) {
+        String budget = System.getProperty("budget." + page + "." + metric,
+                System.getProperty("budget.default." + metric));
+        if (budget == null || budget.trim().isEmpty()) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(budget.trim());
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("The budget of " + metric + " for the " + page
+                    + " page must be a number, not " + budget, ex);
+        }
+    }
+
+    /**
+     * Check a page against its budgets.
+     *
+     * @param pageTiming the timing of the page.
+     * @return a description of every budget that the page exceeded, empty if
+     * it stayed within all of them.
+     */
+    public static List<String> check(PageTiming pageTiming) {
+        List<String> violations = new ArrayList<>();
+        if (pageTiming.isNewDocument()) {
+            checkTime(pageTiming, "ttfb", pageTiming.getTtfbMillis(), violations);
+            checkTime(pageTiming, "domContentLoaded", pageTiming.getDomContentLoadedMillis(), violations);
+            checkTime(pageTiming, "load", pageTiming.getLoadMillis(), violations);
+        }
+        check(pageTiming, "transferBytes", pageTiming.getTransferBytes(), " bytes", violations);
+        check(pageTiming, "requests", pageTiming.getRequestCount(), " requests", violations);
+        return violations;
+    }
+
+    private static void checkTime(PageTiming pageTiming, String metric, long millis, List<String> violations) {
+        //An event that had not happened when we looked took longer than any budget we waited for.
+        if (millis < 0 && getBudget(pageTiming.getPage(), metric) >= 0) {
+            violations.add(pageTiming.getPage() + " " + metric + " did not happen within its budget of "
+                    + getBudget(pageTiming.getPage(), metric) + "ms (" + pageTiming.getUrl() + ")");
+            return;
+        }
+        check(pageTiming, metric, millis, "ms", violations);
+    }
+
+    private static void check(PageTiming pageTiming, String metric, long value, String unit,
+            List<String> violations) {
+        long budget = getBudget(pageTiming.getPage(), metric);
+        if (budget >= 0 && value > budget) {
+            violations.add(pageTiming.getPage() + " " + metric + " " + value + unit + " exceeds its budget of "
+                    + budget + unit + " (" + pageTiming.getUrl() + ")");
+        }
+    }
+}
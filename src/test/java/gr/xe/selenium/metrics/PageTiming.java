@@ -0,0 +1,141 @@
+package gr.xe.selenium.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * How fast one page of the site was, as the browser measured it with the
+ * Navigation Timing and Resource Timing APIs, when we arrived on it. All
+ * times are in milliseconds from the start of the navigation.
+ *
+ * <p>
+ * When the site changes pages without loading a new document we only know
+ * the requests that the change made, so the times are <code>-1</code> and
+ * {@link #isNewDocument() isNewDocument} is <code>false</code>. Note that
+ * the browser hides the size of cross origin resources that do not allow it,
+ * so {@link #getTransferBytes() getTransferBytes} is a lower bound.
+ *
+ * @author pkalogerop
+ */
+public final class PageTiming {
+
+    private final String page;
+    private final String url;
+    private final boolean newDocument;
+    private final long ttfbMillis;
+    private final long domContentLoadedMillis;
+    private final long loadMillis;
+    private final long transferBytes;
+    private final long requestCount;
+
+    /**
+     * @param page the name of the page, such as <code>results</code>.
+     * @param url the url of the page.
+     * @param newDocument whether we arrived on the page by loading a new
+     * document.
+     * @param ttfbMillis the time to the first byte of the document.
+     * @param domContentLoadedMillis the time to the end of
+     * <code>DOMContentLoaded</code>.
+     * @param loadMillis the time to the end of the <code>load</code> event, or
+     * <code>-1</code> if it had not fired when we looked.
+     * @param transferBytes the bytes of the document and its resources.
+     * @param requestCount the requests of the document and its resources.
+     */
+    public PageTiming(String page, String url, boolean newDocument, long ttfbMillis, long domContentLoadedMillis,
+            long loadMillis, long transferBytes, long requestCount) {
+        this.page = page;
+        this.url = url;
+        this.newDocument = newDocument;
+        this.ttfbMillis = ttfbMillis;
+        this.domContentLoadedMillis = domContentLoadedMillis;
+        this.loadMillis = loadMillis;
+        this.transferBytes = transferBytes;
+        this.requestCount = requestCount;
+    }
+
+    /**
+     * @return the name of the page, such as <code>results</code>.
+     */
+    public String getPage() {
+        return page;
+    }
+
+    /**
+     * @return the url of the page.
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * @return <code>true</code> if we arrived on the page by loading a new
+     * document, <code>false</code> if the site changed the current one.
+     */
+    public boolean isNewDocument() {
+        return newDocument;
+    }
+
+    /**
+     * @return the time to the first byte of the document, or <code>-1</code>.
+     */
+    public long getTtfbMillis() {
+        return ttfbMillis;
+    }
+
+    /**
+     * @return the time to the end of <code>DOMContentLoaded</code>, or
+     * <code>-1</code>.
+     */
+    public long getDomContentLoadedMillis() {
+        return domContentLoadedMillis;
+    }
+
+    /**
+     * @return the time to the end of the <code>load</code> event, or
+     * <code>-1</code> if it had not fired.
+     */
+    public long getLoadMillis() {
+        return loadMillis;
+    }
+
+    /**
+     * @return the bytes of the document and its resources.
+     */
+    public long getTransferBytes() {
+        return transferBytes;
+    }
+
+    /**
+     * @return the requests of the document and its resources.
+     */
+    public long getRequestCount() {
+        return requestCount;
+    }
+
+    /**
+     * @return the timing as a <code>Map</code>, in the order of the report.
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("page", page);
+        map.put("url", url);
+        map.put("newDocument", newDocument);
+        map.put("ttfbMillis", ttfbMillis);
+        map.put("domContentLoadedMillis", domContentLoadedMillis);
+        map.put("loadMillis", loadMillis);
+        map.put("transferBytes", transferBytes);
+        map.put("requests", requestCount);
+        return map;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-10s ttfb %6s  dcl %6s  load %6s  %9d bytes  %4d requests  %s", page,
+                format(ttfbMillis), format(domContentLoadedMillis), format(loadMillis), transferBytes,
+                requestCount, url);
+    }
+
+    private static String format(long millis) {
+        return millis < 0 ? "-" : millis + "ms";
+    }
+}
@@ -0,0 +1,129 @@
+package gr.xe.selenium.metrics;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.testng.IInvokedMethod;
+import org.testng.IInvokedMethodListener;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+import org.testng.ITestResult;
+import org.testng.Reporter;
+
+/**
+ * Attaches the {@link PageTiming}s of the pages that every test visited to
+ * its TestNG result, as an attribute named {@value #RESULT_ATTRIBUTE} and a
+ * table in its reporter output, and writes them to
+ * <code>page-timings-&lt;suite&gt;.json</code> next to the surefire reports
+ * (<code>-Dmetrics.reportsDir</code>), so that we can compare the speed of
+ * the site from release to release.
+ *
+ * <p>
+ * A test that passed but visited a page that exceeded one of its
+ * {@link PageBudgets budgets} fails, with every exceeded budget in its
+ * message.
+ *
+ * @author pkalogerop
+ */
+public class PageTimingListener implements IInvokedMethodListener, ISuiteListener {
+
+    /**
+     * The name of the <code>ITestResult</code> attribute with the
+     * <code>List</code> of the <code>PageTiming</code>s of the test.
+     */
+    public static final String RESULT_ATTRIBUTE = "pageTimings";
+
+    private final Queue<JSONObject> testEntries = new ConcurrentLinkedQueue<>();
+
+    @Override
+    public void onStart(ISuite suite) {
+        testEntries.clear();
+    }
+
+    @Override
+    public void beforeInvocation(IInvokedMethod method, ITestResult testResult) {
+        if (method.isTestMethod()) {
+            PageTimingRecorder.startTest();
+        }
+    }
+
+    /*
+     * This runs before the test listeners hear about the result, so a failure
+     * that we set here is reported like any other.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void afterInvocation(IInvokedMethod method, ITestResult testResult) {
+        if (!method.isTestMethod()) {
+            return;
+        }
+        List<PageTiming> pageTimings = PageTimingRecorder.finishTest();
+        if (pageTimings == null || pageTimings.isEmpty()) {
+            return;
+        }
+        testResult.setAttribute(RESULT_ATTRIBUTE, pageTimings);
+
+        StringBuilder table = new StringBuilder("Page timings:");
+        StringBuilder violations = new StringBuilder();
+        JSONArray pages = new JSONArray();
+        for (PageTiming pageTiming : pageTimings) {
+            table.append("\n  ").append(pageTiming);
+            for (String violation : PageBudgets.check(pageTiming)) {
+                violations.append("\n  ").append(violation);
+            }
+            JSONObject page = new JSONObject();
+            page.putAll(pageTiming.toMap());
+            pages.add(page);
+        }
+        ITestResult currentResult = Reporter.getCurrentTestResult();
+        Reporter.setCurrentTestResult(testResult);
+        Reporter.log(table.toString());
+        if (violations.length() > 0) {
+            Reporter.log("Page budgets exceeded:" + violations);
+        }
+        Reporter.setCurrentTestResult(currentResult);
+
+        if (violations.length() > 0 && testResult.getStatus() == ITestResult.SUCCESS) {
+            testResult.setStatus(ITestResult.FAILURE);
+            testResult.setThrowable(new AssertionError("Page budgets exceeded:" + violations));
+        }
+
+        JSONObject entry = new JSONObject();
+        entry.put("name", testResult.getTestClass().getRealClass().getSimpleName() + "."
+                + testResult.getMethod().getMethodName());
+        entry.put("withinBudget", violations.length() == 0);
+        entry.put("pages", pages);
+        testEntries.add(entry);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void onFinish(ISuite suite) {
+        if (testEntries.isEmpty()) {
+            return;
+        }
+        JSONObject report = new JSONObject();
+        report.put("suite", suite.getName());
+        JSONArray tests = new JSONArray();
+        tests.addAll(testEntries);
+        report.put("tests", tests);
+
+        File reportsDir = new File(System.getProperty("metrics.reportsDir", "target/surefire-reports"));
+        File reportFile = new File(reportsDir, "page-timings-" + suite.getName().replaceAll("\\W+", "_") + ".json");
+        reportsDir.mkdirs();
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(reportFile), StandardCharsets.UTF_8)) {
+            report.writeJSONString(writer);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not write " + reportFile, ex);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package gr.xe.selenium.metrics;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.support.ui.FluentWait;
+
+/**
+ * Reads the Navigation Timing and Resource Timing of the page that a browser
+ * has just arrived on and keeps it for the test that is running on the
+ * current thread (see {@link PageTimingListener}). Page Object Models call
+ * {@link #capture(WebDriver, String) capture} once they are ready. Run with
+ * <code>-Dmetrics.pageTiming=false</code> to turn it off.
+ *
+ * <p>
+ * With the "eager" page load strategy we are usually ready before the
+ * <code>load</code> event, so we only wait for it when the page has a
+ * {@link PageBudgets load budget}, and never longer than the budget.
+ *
+ * @author pkalogerop
+ */
+public final class PageTimingRecorder {
+
+    private static final ThreadLocal<List<PageTiming>> CURRENT_TEST = new ThreadLocal<>();
+
+    /*
+     * The time origin of the last document that we captured of each browser
+     * and when we captured it, to tell a new document from a page that the
+     * site changed in place, and which requests the change made.
+     */
+    private static final Map<WebDriver, double[]> LAST_CAPTURES = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private static final String TIMING_SCRIPT = ""
+            + "var timing = {timeOrigin: performance.timeOrigin || performance.timing.navigationStart,"
+            + "  now: performance.now(), requests: 0, bytes: 0};"
+            + "var since = timing.timeOrigin === arguments[0] ? arguments[1] : -1;"
+            + "var navigation = performance.getEntriesByType('navigation')[0];"
+            + "if (navigation) {"
+            + "  timing.ttfb = navigation.responseStart;"
+            + "  timing.dcl = navigation.domContentLoadedEventEnd;"
+            + "  timing.load = navigation.loadEventEnd;"
+            + "  timing.documentBytes = navigation.transferSize || 0;"
+            + "} else {"
+            + "  var legacy = performance.timing;"
+            + "  timing.ttfb = legacy.responseStart - legacy.navigationStart;"
+            + "  timing.dcl = legacy.domContentLoadedEventEnd ? legacy.domContentLoadedEventEnd - legacy.navigationStart : 0;"
+            + "  timing.load = legacy.loadEventEnd ? legacy.loadEventEnd - legacy.navigationStart : 0;"
+            + "  timing.documentBytes = 0;"
+            + "}"
+            + "var resources = performance.getEntriesByType('resource');"
+            + "for (var i = 0; i < resources.length; i++) {"
+            + "  if (resources[i].startTime > since) {"
+            + "    timing.requests++;"
+            + "    timing.bytes += resources[i].transferSize || 0;"
+            + "  }"
+            + "}"
+            + "return timing;";
+
+    private static final String LOADED_SCRIPT = "return document.readyState === 'complete'"
+            + " && performance.timing.loadEventEnd > 0;";
+
+    private PageTimingRecorder() {
+    }
+
+    /**
+     * @return <code>true</code> unless we run with
+     * <code>-Dmetrics.pageTiming=false</code>.
+     */
+    public static boolean isEnabled() {
+        return Boolean.parseBoolean(System.getProperty("metrics.pageTiming", "true"));
+    }
+
+    /**
+     * Keep the page timings of the current thread from now on, because a test
+     * is starting on it.
+     */
+    public static void startTest() {
+        CURRENT_TEST.set(new ArrayList<>());
+    }
+
+    /**
+     * Stop keeping the page timings of the current thread.
+     *
+     * @return the page timings captured on the current thread since
+     * {@link #startTest() startTest}, or <code>null</code> if no test was
+     * started on it.
+     */
+    public static List<PageTiming> finishTest() {
+        List<PageTiming> pageTimings = CURRENT_TEST.get();
+        CURRENT_TEST.remove();
+        return pageTimings;
+    }
+
+    /**
+     * Read the timing of the page that the browser is on.
+     *
+     * @param webDriver the browser.
+     * @param page the name of the page, such as <code>results</code>, which is
+     * also the name of its {@link PageBudgets budgets}.
+     * @return the <code>PageTiming</code> of the page, or <code>null</code> if
+     * page timing is off or the browser cannot tell.
+     */
+    public static PageTiming capture(WebDriver webDriver, String page) {
+        if (!isEnabled() || !(webDriver instanceof JavascriptExecutor)) {
+            return null;
+        }
+        try {
+            double[] lastCapture = LAST_CAPTURES.get(webDriver);
+            Map<?, ?> timing = readTiming(webDriver, lastCapture);
+            boolean newDocument = lastCapture == null || number(timing, "timeOrigin") != lastCapture[0];
+
+            long loadBudget = PageBudgets.getBudget(page, "load");
+            if (newDocument && number(timing, "load") <= 0 && loadBudget >= 0
+                    && waitForLoad(webDriver, loadBudget - (long) number(timing, "now"))) {
+                timing = readTiming(webDriver, lastCapture);
+            }
+            LAST_CAPTURES.put(webDriver, new double[]{number(timing, "timeOrigin"), number(timing, "now")});
+
+            PageTiming pageTiming = newDocument
+                    ? new PageTiming(page, webDriver.getCurrentUrl(), true, millis(timing, "ttfb"),
+                            millis(timing, "dcl"), millis(timing, "load"),
+                            (long) (number(timing, "documentBytes") + number(timing, "bytes")),
+                            (long) number(timing, "requests") + 1)
+                    : new PageTiming(page, webDriver.getCurrentUrl(), false, -1, -1, -1,
+                            (long) number(timing, "bytes"), (long) number(timing, "requests"));
+            List<PageTiming> testTimings = CURRENT_TEST.get();
+            if (testTimings != null) {
+                testTimings.add(pageTiming);
+            }
+            return pageTiming;
+        } catch (WebDriverException ex) {
+            //Performance numbers are not worth failing a functional test for.
+            return null;
+        }
+    }
+
+    /*
+     * On the document of the last capture only the requests made after it
+     * count, on a new document all of them.
+     */
+    private static Map<?, ?> readTiming(WebDriver webDriver, double[] lastCapture) {
+        return (Map<?, ?>) ((JavascriptExecutor) webDriver).executeScript(TIMING_SCRIPT,
+                lastCapture == null ? -1 : lastCapture[0], lastCapture == null ? -1 : lastCapture[1]);
+    }
+
+    private static boolean waitForLoad(WebDriver webDriver, long remainingMillis) {
+        if (remainingMillis <= 0) {
+            return false;
+        }
+        try {
+            new FluentWait<>(webDriver)
+                    .withTimeout(Duration.ofMillis(remainingMillis))
+                    .pollingEvery(Duration.ofMillis(50))
+                    .until(driver -> Boolean.TRUE.equals(
+                            ((JavascriptExecutor) driver).executeScript(LOADED_SCRIPT)));
+            return true;
+        } catch (TimeoutException ex) {
+            return false;
+        }
+    }
+
+    private static double number(Map<?, ?> timing, String key) {
+        Object value = timing.get(key);
+        return value instanceof Number ? ((Number) value).doubleValue() : 0;
+    }
+
+    //The browser reports 0 for an event that has not happened yet.
+    private static long millis(Map<?, ?> timing, String key) {
+        double value = number(timing, key);
+        return value > 0 ? Math.round(value) : -1;
+    }
+}
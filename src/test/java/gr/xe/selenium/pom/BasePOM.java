@@ -1,10 +1,28 @@
 package gr.xe.selenium.pom;
 
+import gr.xe.selenium.driver.ResourceBlocker;
+import gr.xe.selenium.driver.TrafficStats;
+import gr.xe.selenium.metrics.InstrumentedWebDriver;
+import gr.xe.selenium.metrics.PageTimingRecorder;
+import gr.xe.selenium.session.AuthSessionCache;
+import gr.xe.selenium.session.LoginStateEnum;
+import gr.xe.selenium.session.SessionStateTracker;
+import gr.xe.selenium.utilities.SiteUrls;
+import gr.xe.selenium.waits.DomMutationSleeper;
+import java.time.Clock;
 import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import org.openqa.selenium.By;
+import org.openqa.selenium.HasCapabilities;
 import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.PageLoadStrategy;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebElement;
+import org.openqa.selenium.remote.CapabilityType;
+import org.openqa.selenium.support.ui.ExpectedConditions;
 import org.openqa.selenium.support.ui.WebDriverWait;
+import org.testng.Reporter;
 
 /**
  * This is the base class for all Page Object Models that we will create.
@@ -14,11 +32,17 @@ public class BasePOM {
 
     private WebDriver webDriver;
     private WebDriverWait wait;
+    private final ElementCache elementCache = new ElementCache();
 
     
     public BasePOM(WebDriver webDriver) {
         this.webDriver = webDriver;
-        wait = new WebDriverWait(this.webDriver, Duration.ofSeconds(10).toSeconds());
+        //Wake up as soon as the page changes instead of polling every 500ms. The
+        //sleeper talks to the browser behind our timing wrapper, otherwise its
+        //idle waits would count as slow commands.
+        wait = new WebDriverWait(this.webDriver, Clock.systemDefaultZone(),
+                new DomMutationSleeper((WebDriver) InstrumentedWebDriver.unwrap(this.webDriver)), Duration.ofSeconds(10).toSeconds(),
+                Duration.ofMillis(500).toMillis());
     }
 
     /**
@@ -31,13 +55,142 @@ public class BasePOM {
     
     /**
      * Get the current instance of our <code>WebDriverWait</code>. We will use 
-     * this to wait for all <code>WebElement</code>.
+     * this to wait for all <code>WebElement</code>. It checks its conditions
+     * again whenever the DOM changes, see {@link DomMutationSleeper}.
      * @return 
      */
     public WebDriverWait getWait() {
         return wait;
     }
     
+    /**
+     * Get the element cache of this page, for instance to report its hit and
+     * miss counters.
+     * @return the <code>ElementCache</code> of this Page Object Model.
+     */
+    public ElementCache getElementCache() {
+        return elementCache;
+    }
+
+    /**
+     * Wait until the element of the given locator is visible, unless we have
+     * already found it in the current state of the page. Use it for containers
+     * that we look into again and again, such as modal windows. Page Object
+     * Models must {@link ElementCache#invalidate() invalidate} the cache when
+     * an action of theirs changes the state of the page.
+     *
+     * @param locator the locator of the element.
+     * @return the visible <code>WebElement</code>.
+     */
+    protected WebElement getCachedVisibleElement(By locator) {
+        return elementCache.get(locator,
+                by -> getWait().until(ExpectedConditions.visibilityOfElementLocated(by)));
+    }
+
+    /**
+     * The readiness contract of this page: the elements that must be visible
+     * before we consider the page loaded and usable. Each Page Object Model
+     * declares its own, so that with the "eager" or "none" page load strategy
+     * we can start working on a page long before its last image or tracking
+     * script has loaded.
+     *
+     * @return a <code>List</code> of locators, empty if the page has no
+     * contract.
+     */
+    protected List<By> getReadinessLocators() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Wait until every element of the {@link #getReadinessLocators() readiness
+     * contract} of this page is visible, then report the traffic of the
+     * navigation so far.
+     */
+    public void waitUntilReady() {
+        List<By> readinessLocators = getReadinessLocators();
+        if (!readinessLocators.isEmpty()) {
+            getWait().until(driver -> {
+                for (By locator : readinessLocators) {
+                    List<WebElement> elements = driver.findElements(locator);
+                    if (elements.isEmpty() || !elements.get(0).isDisplayed()) {
+                        return false;
+                    }
+                }
+                return true;
+            });
+        }
+        reportNavigationTraffic("");
+    }
+
+    /**
+     * The name of this page in the page timings and their budgets, see
+     * {@link gr.xe.selenium.metrics.PageBudgets PageBudgets}.
+     *
+     * @return the name of the page, such as <code>results</code>, or
+     * <code>null</code> if we do not time this page.
+     */
+    protected String getPageName() {
+        return null;
+    }
+
+    /**
+     * Record how fast this page loaded, for the current test. Page Object
+     * Models call it once they have arrived on the page and it is
+     * {@link #waitUntilReady() ready}.
+     */
+    public void capturePageTiming() {
+        String pageName = getPageName();
+        if (pageName != null) {
+            PageTimingRecorder.capture(webDriver, pageName);
+        }
+    }
+
+    /**
+     * Navigate to the given url. All Page Object Models should navigate through
+     * this method and not through the <code>WebDriver</code> directly, so that
+     * every navigation is reported in the same way. Note that, depending on the
+     * page load strategy, the page may still be loading when we return, so
+     * callers should {@link #waitUntilReady() wait} for the page they expect.
+     *
+     * @param url the url we want to visit.
+     */
+    protected void navigateTo(String url) {
+        //Whatever the previous page loaded after it was ready is still its own.
+        reportNavigationTraffic(" (after it was ready)");
+        ResourceBlocker.startNavigation(webDriver, url);
+        elementCache.invalidate();
+
+        /*
+        With the "none" strategy get() returns before the new document even
+        exists, so we wait for the current one to go away. Otherwise we could
+        find the elements of our readiness contract on the page we are leaving.
+        */
+        WebElement previousDocument = null;
+        if (getPageLoadStrategy() == PageLoadStrategy.NONE) {
+            previousDocument = (WebElement) ((JavascriptExecutor) webDriver)
+                    .executeScript("return document.documentElement;");
+        }
+
+        webDriver.get(url);
+
+        if (previousDocument != null) {
+            getWait().until(ExpectedConditions.stalenessOf(previousDocument));
+        }
+    }
+
+    /*
+     * Report what the session downloaded since the last report, if it goes
+     * through a blocking proxy. Callers that never wait for readiness get
+     * their traffic reported when the next navigation starts.
+     */
+    private void reportNavigationTraffic(String suffix) {
+        TrafficStats trafficStats = ResourceBlocker.finishNavigation(webDriver);
+        String url = ResourceBlocker.getNavigationUrl(webDriver);
+        if (trafficStats != null && url != null && !trafficStats.isEmpty()) {
+            Reporter.log("Navigation to " + url + suffix + ": " + trafficStats);
+        }
+    }
+
     /**
      * Checks if we are logged in the xe.gr app.
      * @return <code>true</code> if we are logged in, <code>false</code> otherwise.
@@ -52,7 +205,27 @@ public class BasePOM {
         probably lead to bugs). We could check for cookies or in the database for an
         open session. 
         
-        now the way we check it is:
+        First we ask the SessionStateTracker, which remembers our logins and
+        logouts and can read the authentication cookies of the current page
+        without navigating anywhere. Only if it does not know, we ask the site.
+        */
+        LoginStateEnum loginState = SessionStateTracker.getInstance().getState(webDriver);
+        if (loginState.isKnown()) {
+            return loginState == LoginStateEnum.LOGGED_IN;
+        }
+        return isUserLoggedInOnSite();
+    }
+
+    /**
+     * Ask the site itself whether we are logged in, whatever the
+     * <code>SessionStateTracker</code> believes, and record its answer. It
+     * navigates to a login protected page, so prefer
+     * {@link #isUserLoggedIn()} unless the cookies we have may be stale.
+     * @return <code>true</code> if we are logged in, <code>false</code> otherwise.
+     */
+    public boolean isUserLoggedInOnSite() {
+        /*
+        The way we ask the site is:
         Go to a page that you would have access only if you were logged in such
         as: https://my.xe.gr/app/static/start/ ->
         If we are not logged in then we would be redirected to the following url:
@@ -60,12 +233,15 @@ public class BasePOM {
         */
         
         //This page we will have access to only if we are logged in.
-        String profileInfoUrl = "https://my.xe.gr/app/static/start/";
-        webDriver.get(profileInfoUrl);
+        String profileInfoUrl = SiteUrls.getMyBaseUrl() + "app/static/start/";
+        navigateTo(profileInfoUrl);
         
         //If we are logged in then the url will not change (if we are not logged
         //we will be redirected to the login page.
-        return profileInfoUrl.equals(getWebDriver().getCurrentUrl());        
+        boolean loggedIn = profileInfoUrl.equals(getWebDriver().getCurrentUrl());
+        SessionStateTracker.getInstance().setState(webDriver,
+                loggedIn ? LoginStateEnum.LOGGED_IN : LoginStateEnum.LOGGED_OUT);
+        return loggedIn;
     }
     
     /**
@@ -94,11 +270,25 @@ public class BasePOM {
         about the business model and see if we can find a common way to logout
         */
         
-        webDriver.get("https://www.xe.gr/logoutsso");
+        navigateTo(SiteUrls.getBaseUrl() + "logoutsso");
+        SessionStateTracker.getInstance().loggedOut(webDriver);
+        AuthSessionCache.getInstance().loggedOut(webDriver);
         
         return this;
     }
     
+    /**
+     * @return the page load strategy that our browser was started with.
+     */
+    private PageLoadStrategy getPageLoadStrategy() {
+        if (!(webDriver instanceof HasCapabilities)) {
+            return PageLoadStrategy.NORMAL;
+        }
+        Object strategy = ((HasCapabilities) webDriver).getCapabilities()
+                .getCapability(CapabilityType.PAGE_LOAD_STRATEGY);
+        return strategy == null ? PageLoadStrategy.NORMAL : PageLoadStrategy.fromString(strategy.toString());
+    }
+
     /**
      * Scroll the web element into view. This is to avoid any miss-clicks and errors and also 
      * to emulate even more the proper user behavior.
@@ -0,0 +1,159 @@
+package gr.xe.selenium.pom;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WebElement;
+import org.testng.Reporter;
+
+/**
+ * The state that a browser is in at the end of a {@link Flow}: a url plus the
+ * elements that must, and must not, be visible. Tests that start with the same
+ * flow {@link #reach(WebDriver) reach} the checkpoint instead of running the
+ * flow, and only run the steps that are their own. Reaching a checkpoint:
+ * <ol>
+ * <li>does nothing if the browser is still at the checkpoint, for instance
+ * because the previous test on the same browser stopped there</li>
+ * <li>otherwise opens the url that the checkpoint was last seen at, if we know
+ * it, and checks the markers</li>
+ * <li>otherwise, or if the markers do not match, replays the whole flow</li>
+ * </ol>
+ *
+ * @param <P> the Page Object Model of the page that the checkpoint is on.
+ * @author pkalogerop
+ */
+public final class Checkpoint<P> {
+
+    /*
+    The checkpoint that every browser reached last. A browser that has since
+    moved on fails the validation, so we do not need to track every step.
+    */
+    private static final Map<WebDriver, Checkpoint<?>> SESSION_CHECKPOINTS
+            = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final Flow<P> flow;
+    private final Function<WebDriver, P> pageFactory;
+    private final List<By> requiredMarkers;
+    private final List<By> forbiddenMarkers;
+    private volatile String url;
+
+    private final AtomicInteger reused = new AtomicInteger();
+    private final AtomicInteger restored = new AtomicInteger();
+    private final AtomicInteger replayed = new AtomicInteger();
+
+    Checkpoint(Flow<P> flow, Function<WebDriver, P> pageFactory, List<By> requiredMarkers,
+            List<By> forbiddenMarkers) {
+        this.flow = flow;
+        this.pageFactory = pageFactory;
+        this.requiredMarkers = Collections.unmodifiableList(new ArrayList<>(requiredMarkers));
+        this.forbiddenMarkers = Collections.unmodifiableList(new ArrayList<>(forbiddenMarkers));
+    }
+
+    /**
+     * Bring the browser to this checkpoint, as cheaply as we can.
+     *
+     * @param webDriver the browser of the current test.
+     * @return the Page Object Model of the page that the checkpoint is on.
+     */
+    public P reach(WebDriver webDriver) {
+        String knownUrl = url;
+
+        if (SESSION_CHECKPOINTS.get(webDriver) == this && knownUrl != null
+                && knownUrl.equals(webDriver.getCurrentUrl()) && markersMatch(webDriver)) {
+            reused.incrementAndGet();
+            Reporter.log("Checkpoint " + flow + ": already there");
+            return pageFactory.apply(webDriver);
+        }
+
+        if (knownUrl != null) {
+            try {
+                P page = pageFactory.apply(webDriver);
+                if (page instanceof BasePOM) {
+                    BasePOM basePom = (BasePOM) page;
+                    basePom.navigateTo(knownUrl);
+                    basePom.waitUntilReady();
+                } else {
+                    webDriver.get(knownUrl);
+                }
+                if (knownUrl.equals(webDriver.getCurrentUrl()) && markersMatch(webDriver)) {
+                    restored.incrementAndGet();
+                    SESSION_CHECKPOINTS.put(webDriver, this);
+                    Reporter.log("Checkpoint " + flow + ": restored from " + knownUrl);
+                    return page;
+                }
+            } catch (WebDriverException ex) {
+                //The url now redirects or the page never got ready, replay the flow instead.
+                Reporter.log("Checkpoint " + flow + ": could not restore from " + knownUrl + ": "
+                        + ex.getClass().getSimpleName());
+            }
+        }
+
+        replayed.incrementAndGet();
+        P page = flow.replay(webDriver);
+        if (markersMatch(webDriver)) {
+            url = webDriver.getCurrentUrl();
+            SESSION_CHECKPOINTS.put(webDriver, this);
+        } else {
+            //Not a state we can trust to come back to.
+            SESSION_CHECKPOINTS.remove(webDriver);
+        }
+        Reporter.log("Checkpoint " + flow + ": replayed");
+        return page;
+    }
+
+    /**
+     * @return how many times the browser was already at this checkpoint.
+     */
+    public int getReusedCount() {
+        return reused.get();
+    }
+
+    /**
+     * @return how many times we reached this checkpoint by opening its url.
+     */
+    public int getRestoredCount() {
+        return restored.get();
+    }
+
+    /**
+     * @return how many times we replayed the whole flow.
+     */
+    public int getReplayedCount() {
+        return replayed.get();
+    }
+
+    private boolean markersMatch(WebDriver webDriver) {
+        try {
+            for (By marker : requiredMarkers) {
+                if (!isVisible(webDriver, marker)) {
+                    return false;
+                }
+            }
+            for (By marker : forbiddenMarkers) {
+                if (isVisible(webDriver, marker)) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (WebDriverException ex) {
+            //The page changed under our feet, do not trust it.
+            return false;
+        }
+    }
+
+    private static boolean isVisible(WebDriver webDriver, By marker) {
+        for (WebElement element : webDriver.findElements(marker)) {
+            if (element.isDisplayed()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
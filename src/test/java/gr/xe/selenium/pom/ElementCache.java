@@ -0,0 +1,136 @@
+package gr.xe.selenium.pom;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+import org.openqa.selenium.By;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.WrapsElement;
+import org.openqa.selenium.interactions.Locatable;
+
+/**
+ * Remembers the <code>WebElement</code>s that a Page Object Model has looked
+ * up, keyed by their locator, so that looking up the same container again
+ * while the page is in the same state costs nothing.
+ *
+ * <p>
+ * The elements we hand out are proxies around the real handles. If the page
+ * re-renders an element and its handle goes stale, the proxy looks it up again
+ * with the same locator and repeats the call, so callers never see a
+ * <code>StaleElementReferenceException</code> because of the cache. Page
+ * Object Models {@link #invalidate() invalidate} the cache whenever they
+ * navigate or change the state of the page.
+ *
+ * @author pkalogerop
+ */
+public class ElementCache {
+
+    private final Map<By, CachedElement> elements = new HashMap<>();
+    private int hits;
+    private int misses;
+    private int staleRecoveries;
+
+    /**
+     * Get the element of the given locator, looking it up only if we do not
+     * have it already.
+     *
+     * @param locator the locator of the element.
+     * @param resolver looks up the element, for instance waiting until it is
+     * visible. Also used to look it up again if it goes stale.
+     * @return a <code>WebElement</code> that survives re-rendering.
+     */
+    public WebElement get(By locator, Function<By, WebElement> resolver) {
+        CachedElement cachedElement = elements.get(locator);
+        if (cachedElement != null) {
+            hits++;
+            return cachedElement.proxy;
+        }
+
+        misses++;
+        cachedElement = new CachedElement(locator, resolver, resolver.apply(locator));
+        elements.put(locator, cachedElement);
+        return cachedElement.proxy;
+    }
+
+    /**
+     * Forget every element, because the page navigated or changed state.
+     */
+    public void invalidate() {
+        elements.clear();
+    }
+
+    /**
+     * @return how many lookups we answered from the cache.
+     */
+    public int getHits() {
+        return hits;
+    }
+
+    /**
+     * @return how many lookups went to the browser.
+     */
+    public int getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return how many times a cached element had gone stale and we looked it
+     * up again.
+     */
+    public int getStaleRecoveries() {
+        return staleRecoveries;
+    }
+
+    @Override
+    public String toString() {
+        return "element cache: " + hits + " hits, " + misses + " misses, "
+                + staleRecoveries + " stale recoveries";
+    }
+
+    private class CachedElement implements InvocationHandler {
+
+        private final By locator;
+        private final Function<By, WebElement> resolver;
+        private final WebElement proxy;
+        private WebElement element;
+
+        CachedElement(By locator, Function<By, WebElement> resolver, WebElement element) {
+            this.locator = locator;
+            this.resolver = resolver;
+            this.element = element;
+            this.proxy = (WebElement) Proxy.newProxyInstance(ElementCache.class.getClassLoader(),
+                    new Class<?>[]{WebElement.class, WrapsElement.class, Locatable.class}, this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == WrapsElement.class) {
+                return element;
+            }
+            if ("toString".equals(method.getName()) && method.getParameterCount() == 0) {
+                return "cached " + locator + " -> " + element;
+            }
+            try {
+                return invokeOnElement(method, args);
+            } catch (StaleElementReferenceException ex) {
+                //The page re-rendered the element, look it up again and retry once.
+                staleRecoveries++;
+                element = resolver.apply(locator);
+                return invokeOnElement(method, args);
+            }
+        }
+
+        private Object invokeOnElement(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(element, args);
+            } catch (InvocationTargetException ex) {
+                throw ex.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package gr.xe.selenium.pom;
+
+import java.util.List;
+import java.util.function.Function;
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * A reusable sequence of steps through our Page Object Models, such as "go to
+ * the Main Page, click the land for sale link, click search". Flows are
+ * immutable, so a longer flow can be built on top of a shorter one:
+ *
+ * <pre>
+ * Flow&lt;MainPage&gt; landSale = Flow.start("main page", driver -&gt; new MainPage(driver).goTo())
+ *         .then("land sale link", MainPage::clickLandSaleLink);
+ * Flow&lt;ResultsPage&gt; landSaleResults = landSale.then("search", MainPage::clickSearchButton);
+ * </pre>
+ *
+ * A flow can be turned into a {@link Checkpoint}, which lets the tests that
+ * start with the same flow skip it, and its steps can be
+ * {@link #wrapSteps(StepWrapper) wrapped}, for instance to time each of them.
+ *
+ * @param <P> the Page Object Model that the flow ends on.
+ * @author pkalogerop
+ */
+public final class Flow<P> {
+
+    private final String name;
+    //The flow before the last step, null if the last step is the first one.
+    private final Flow<?> previous;
+    private final String stepName;
+    //Takes the WebDriver for the first step, the page of the previous step otherwise.
+    private final Function<?, P> step;
+
+    private Flow(String name, Flow<?> previous, String stepName, Function<?, P> step) {
+        this.name = name;
+        this.previous = previous;
+        this.stepName = stepName;
+        this.step = step;
+    }
+
+    /**
+     * Wraps each step of a flow, see {@link Flow#wrapSteps(StepWrapper)
+     * wrapSteps}. It is generic, so implement it with a method reference to a
+     * generic method.
+     */
+    @FunctionalInterface
+    public interface StepWrapper {
+
+        /**
+         * @param <T> the input of the step, a <code>WebDriver</code> or a
+         * Page Object Model.
+         * @param <R> the Page Object Model that the step ends on.
+         * @param stepName the name of the step.
+         * @param step the step.
+         * @return a step that runs the given one.
+         */
+        <T, R> Function<T, R> wrap(String stepName, Function<T, R> step);
+    }
+
+    /**
+     * Start a flow.
+     *
+     * @param <P> the Page Object Model of the first step.
+     * @param stepName a short name for the first step.
+     * @param firstStep opens the first page, usually through its
+     * <code>goTo</code> method.
+     * @return a <code>Flow</code> of one step.
+     */
+    public static <P> Flow<P> start(String stepName, Function<WebDriver, P> firstStep) {
+        return new Flow<>(stepName, null, stepName, firstStep);
+    }
+
+    /**
+     * Add a step at the end of this flow.
+     *
+     * @param <Q> the Page Object Model that the new step ends on.
+     * @param stepName a short name for the step.
+     * @param step the step, such as <code>MainPage::clickSearchButton</code>.
+     * @return a new <code>Flow</code>, this one is not modified.
+     */
+    public <Q> Flow<Q> then(String stepName, Function<P, Q> step) {
+        return new Flow<>(name + " > " + stepName, this, stepName, step);
+    }
+
+    /**
+     * Run every step of this flow, from the start.
+     *
+     * @param webDriver the browser to run the flow in.
+     * @return the Page Object Model that the flow ends on.
+     */
+    @SuppressWarnings("unchecked")
+    public P replay(WebDriver webDriver) {
+        Object input = previous == null ? webDriver : previous.replay(webDriver);
+        return ((Function<Object, P>) step).apply(input);
+    }
+
+    /**
+     * Get the same flow with every step wrapped, for instance so that each
+     * step is timed.
+     *
+     * @param wrapper wraps each step, such as
+     * <code>LoadScenarioEnum::timed</code>.
+     * @return a new <code>Flow</code> with the same steps and names, this one
+     * is not modified.
+     */
+    public Flow<P> wrapSteps(StepWrapper wrapper) {
+        return new Flow<>(name, previous == null ? null : previous.wrapSteps(wrapper), stepName,
+                wrapper.wrap(stepName, step));
+    }
+
+    /**
+     * Turn this flow into a checkpoint.
+     *
+     * @param pageFactory creates the Page Object Model of the page that the
+     * flow ends on, without navigating, such as <code>ResultsPage::new</code>.
+     * @param requiredMarkers elements that must be visible when we are at the
+     * end of this flow.
+     * @param forbiddenMarkers elements that must not be visible, such as a
+     * modal that a test may have left open.
+     * @return a <code>Checkpoint</code> at the end of this flow.
+     */
+    public Checkpoint<P> checkpoint(Function<WebDriver, P> pageFactory, List<By> requiredMarkers,
+            List<By> forbiddenMarkers) {
+        return new Checkpoint<>(this, pageFactory, requiredMarkers, forbiddenMarkers);
+    }
+
+    /**
+     * @return the names of the steps of this flow, such as
+     * "main page &gt; land sale link &gt; search".
+     */
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
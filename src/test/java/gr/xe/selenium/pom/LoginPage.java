@@ -1,5 +1,10 @@
 package gr.xe.selenium.pom;
 
+import gr.xe.selenium.session.LoginStateEnum;
+import gr.xe.selenium.session.SessionStateTracker;
+import gr.xe.selenium.utilities.SiteUrls;
+import java.util.Arrays;
+import java.util.List;
 import org.openqa.selenium.By;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebElement;
@@ -16,6 +21,40 @@ public class LoginPage extends BasePOM {
         super(webDriver);
     }
 
+    /**
+     * The Login Page is ready as soon as we can type our credentials.
+     *
+     * @return the locators of the email and password fields.
+     */
+    @Override
+    protected List<By> getReadinessLocators() {
+        return Arrays.asList(By.id("email"), By.id("password"));
+    }
+
+    /**
+     * The name of the Login Page in the page timings and their budgets.
+     *
+     * @return <code>login</code>.
+     */
+    @Override
+    protected String getPageName() {
+        return "login";
+    }
+
+    /**
+     * Navigate straight to the Login Page. After a successful login we will be
+     * redirected to the user's profile page.
+     *
+     * @return an instance of the <code>LoginPage</code> Page Object Model.
+     */
+    public LoginPage goTo() {
+        String myBaseUrl = SiteUrls.getMyBaseUrl();
+        navigateTo(myBaseUrl + "login?redirect=" + myBaseUrl + "app/static/start/");
+        waitUntilReady();
+        capturePageTiming();
+        return this;
+    }
+
     /**
      * Click the Login tab.
      *
@@ -73,7 +112,22 @@ public class LoginPage extends BasePOM {
                 By.cssSelector(
                         "#box_login > p.login_button > a > span")))
                 .click();
+        //We do not know yet if our credentials were accepted.
+        SessionStateTracker.getInstance().setState(getWebDriver(), LoginStateEnum.LOGGING_IN);
         return new BasePOM(getWebDriver());
     }
 
+    /**
+     * Wait until the site has redirected us away from the Login Page, which
+     * happens once our credentials have been accepted.
+     *
+     * @return an instance of the <code>LoginPage</code> Page Object Model.
+     */
+    public LoginPage waitForLoginToComplete() {
+        getWait().until(ExpectedConditions.not(
+                ExpectedConditions.urlContains("/login")));
+        SessionStateTracker.getInstance().setState(getWebDriver(), LoginStateEnum.LOGGED_IN);
+        return this;
+    }
+
 }
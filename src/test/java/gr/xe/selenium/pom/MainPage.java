@@ -2,6 +2,9 @@ package gr.xe.selenium.pom;
 
 import gr.xe.selenium.pom.enums.PropertyDropdownEnum;
 import gr.xe.selenium.pom.enums.TransactionDropdownEnum;
+import gr.xe.selenium.utilities.SiteUrls;
+import java.util.Arrays;
+import java.util.List;
 import org.openqa.selenium.By;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebElement;
@@ -18,13 +21,37 @@ public class MainPage extends BasePOM {
         super(webDriver);
     }
 
+    /**
+     * The Main Page is ready as soon as we can use the search form.
+     *
+     * @return the locators of the search field and the search button.
+     */
+    @Override
+    protected List<By> getReadinessLocators() {
+        return Arrays.asList(
+                By.cssSelector("[data-testid=area-input]"),
+                By.cssSelector("[data-testid=submit-input]"));
+    }
+
+    /**
+     * The name of the Main Page in the page timings and their budgets.
+     *
+     * @return <code>main</code>.
+     */
+    @Override
+    protected String getPageName() {
+        return "main";
+    }
+
     /**
      * Navigate to the page represented by this Page Object Model.
      *
      * @return an instance of the <code>MainPage</code> Page Object Model.
      */
     public MainPage goTo() {
-        getWebDriver().get("https://www.xe.gr/");
+        navigateTo(SiteUrls.getBaseUrl());
+        waitUntilReady();
+        capturePageTiming();
         return this;
     }
 
@@ -68,7 +95,10 @@ public class MainPage extends BasePOM {
                         By.cssSelector("[data-testid=submit-input]")));
         searchButton.click();
 
-        return new ResultsPage(getWebDriver());
+        ResultsPage resultsPage = new ResultsPage(getWebDriver());
+        resultsPage.waitUntilReady();
+        resultsPage.capturePageTiming();
+        return resultsPage;
     }
 
     /**
@@ -116,7 +146,8 @@ public class MainPage extends BasePOM {
      * @return an instance of the <code>MainPage</code> Page Object Model.
      */
     public MainPage clickLandSaleLink() {
-        String landSaleCssSelector = "div.grid-container a[href='https://www.xe.gr/property/s/poliseis-gis-oikopedon']";
+        String landSaleCssSelector = "div.grid-container a[href='"
+                + SiteUrls.getBaseUrl() + "property/s/poliseis-gis-oikopedon']";
         WebElement landSaleWebElement = getWait().until(
                 ExpectedConditions.visibilityOfElementLocated(
                         By.cssSelector(landSaleCssSelector)));
@@ -1,7 +1,21 @@
 package gr.xe.selenium.pom;
 
+import gr.xe.selenium.pom.enums.ResultsStateEnum;
+import gr.xe.selenium.pom.model.ResultValidation;
+import gr.xe.selenium.pom.model.SearchCriteria;
+import gr.xe.selenium.pom.model.SearchResultRecord;
+import gr.xe.selenium.utilities.SiteUrls;
+import gr.xe.selenium.waits.WaitConditions;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
 import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.Keys;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebElement;
 import org.openqa.selenium.support.ui.ExpectedConditions;
@@ -13,10 +27,84 @@ import org.openqa.selenium.support.ui.ExpectedConditions;
  */
 public class ResultsPage extends BasePOM {
 
+    //The results render in batches, so we wait for them to stop changing.
+    private static final Duration RESULTS_STABLE_FOR = Duration.ofMillis(300);
+
+    /*
+    Reads every result card in the browser and hands back plain values, so the
+    whole page costs us a single round trip to the driver.
+    */
+    private static final String EXTRACT_RESULTS_SCRIPT
+            = "var text = function (card, testId) {"
+            + "  var element = card.querySelector('[data-testid=' + testId + ']');"
+            + "  return element ? element.textContent.trim() : '';"
+            + "};"
+            + "var cards = document.querySelectorAll(arguments[0]);"
+            + "var records = [];"
+            + "for (var i = 0; i < cards.length; i++) {"
+            + "  var link = cards[i].querySelector('[data-testid=property-ad-url]') || cards[i].querySelector('a[href]');"
+            + "  records.push({"
+            + "    price: text(cards[i], 'property-ad-price'),"
+            + "    title: text(cards[i], 'property-ad-title'),"
+            + "    area: text(cards[i], 'property-ad-location'),"
+            + "    link: link ? link.href : ''"
+            + "  });"
+            + "}"
+            + "return records;";
+
     public ResultsPage(WebDriver webDriver) {
         super(webDriver);
     }
 
+    /**
+     * Open the results of the given search directly, without going through
+     * the Main Page form and the filters. Use it in tests that are about the
+     * results and not about how we search for them.
+     *
+     * @param searchCriteria what we search for.
+     * @return an instance of the <code>ResultsPage</code> Page Object Model.
+     */
+    public ResultsPage goTo(SearchCriteria searchCriteria) {
+        navigateTo(searchCriteria.toResultsUrl(SiteUrls.getBaseUrl()));
+        waitUntilReady();
+        capturePageTiming();
+        return this;
+    }
+
+    /**
+     * The Results Page is ready once its filters can be used. Note that the
+     * results themselves may still be rendering, see
+     * {@link #waitUntilReady() waitUntilReady}.
+     *
+     * @return the locators of the price filter and the filters buttons.
+     */
+    @Override
+    protected List<By> getReadinessLocators() {
+        return Arrays.asList(
+                By.cssSelector("[data-testid=price-filter-button]"),
+                By.cssSelector("[data-testid=filters-button]"));
+    }
+
+    /**
+     * The name of the Results Page in the page timings and their budgets.
+     *
+     * @return <code>results</code>.
+     */
+    @Override
+    protected String getPageName() {
+        return "results";
+    }
+
+    /**
+     * On top of its readiness contract, the Results Page is only ready once it
+     * shows either the results or the No Results container.
+     */
+    @Override
+    public void waitUntilReady() {
+        super.waitUntilReady();
+        getResultsState();
+    }
+
     /**
      * In case we search for something and zero results come back, then this
      * container will appear.
@@ -25,12 +113,50 @@ public class ResultsPage extends BasePOM {
      * <code>WebElement</code>
      */
     public WebElement getNoResultsContainerWebElement() {
-        String noResultsContainerCssSelector = "[data-testid=no-results]";
+        String noResultsContainerCssSelector = ResultsStateEnum.NO_RESULTS.getCssSelector();
         return getWait().until(
                 ExpectedConditions.visibilityOfElementLocated(
                         By.cssSelector(noResultsContainerCssSelector)));
     }
 
+    /**
+     * Wait until the page shows either a list of results or the No Results
+     * container and report which of the two appeared. Unlike
+     * {@link #getNoResultsContainerWebElement() getNoResultsContainerWebElement}
+     * this returns as soon as the page has settled in either state, so
+     * checking for the absence of one of them does not cost us the full wait
+     * timeout.
+     *
+     * @return the <code>ResultsStateEnum</code> that the page is in.
+     */
+    public ResultsStateEnum getResultsState() {
+        By resultsLocator = By.cssSelector(ResultsStateEnum.RESULTS.getCssSelector());
+        By noResultsLocator = By.cssSelector(ResultsStateEnum.NO_RESULTS.getCssSelector());
+
+        return getWait().until(driver -> {
+            if (!driver.findElements(resultsLocator).isEmpty()) {
+                return ResultsStateEnum.RESULTS;
+            }
+            for (WebElement noResults : driver.findElements(noResultsLocator)) {
+                if (noResults.isDisplayed()) {
+                    return ResultsStateEnum.NO_RESULTS;
+                }
+            }
+            //Neither state has rendered yet, keep waiting.
+            return null;
+        });
+    }
+
+    /**
+     * Convenient method on top of {@link #getResultsState() getResultsState}.
+     *
+     * @return <code>true</code> if our search returned at least one result,
+     * <code>false</code> if the No Results container appeared instead.
+     */
+    public boolean hasResults() {
+        return getResultsState() == ResultsStateEnum.RESULTS;
+    }
+
     /**
      * Click on the price Filter button. This will enable us to set minimum and
      * maximum values for the price.
@@ -71,18 +197,121 @@ public class ResultsPage extends BasePOM {
         return this;
     }
 
+    /**
+     * Get the maximum price Web Element. This will appear after we have cliked
+     * on the Price Filter using the
+     * {@link #clickPriceFilter() clickPriceFilter}.
+     *
+     * @return the maximum price <code>WebElement</code>
+     */
+    public WebElement getMaximumPriceWebElement() {
+        String maximumPriceCssSelector = "[data-testid=maximum_price_input]";
+        return getWait().until(
+                ExpectedConditions.visibilityOfElementLocated(
+                        By.cssSelector(maximumPriceCssSelector)));
+    }
+
+    /**
+     * Set the maximum price for the maximum price filter.
+     *
+     * @param maximumPrice the maximum price we want to set
+     * @return an instance of the <code>ResultsPage</code> Page Object Model.
+     */
+    public ResultsPage setMaximumPriceFilter(int maximumPrice) {
+        WebElement maximumPriceWebElement = this.getMaximumPriceWebElement();
+        maximumPriceWebElement.clear();
+        maximumPriceWebElement.sendKeys(Integer.toString(maximumPrice));
+
+        return this;
+    }
+
+    /**
+     * Apply the price filters that we have set with
+     * {@link #setMinimumPriceFilter(int) setMinimumPriceFilter} and
+     * {@link #setMaximumPriceFilter(int) setMaximumPriceFilter}, by pressing
+     * enter. We return once the filtered results have loaded, so we never look
+     * at the results of the previous search by mistake.
+     *
+     * @return an instance of the <code>ResultsPage</code> Page Object Model.
+     */
+    public ResultsPage applyPriceFilter() {
+        String unfilteredUrl = getWebDriver().getCurrentUrl();
+        getMinimumPriceWebElement().sendKeys(Keys.ENTER);
+
+        //The filters are part of the url of the results.
+        getWait().until(ExpectedConditions.not(ExpectedConditions.urlToBe(unfilteredUrl)));
+        getElementCache().invalidate();
+        waitUntilReady();
+        capturePageTiming();
+        return this;
+    }
+
     /**
      * Get a list of all the results that are visible after we have performed a
-     * search or changed any filters.
+     * search or changed any filters. We return once the list has stopped
+     * changing, so a list that is still rendering is not mistaken for a short
+     * one.
      *
      * @return a <code>List</code> of <code>WebElement</code>s each one
      * representing a search result.
      */
     public List<WebElement> getAllResultsList() {
-        String resultsSelector = "[data-testid='property-ad-container']";
-        return getWait().until(
-                ExpectedConditions.presenceOfAllElementsLocatedBy(
-                        By.cssSelector(resultsSelector)));
+        String resultsSelector = ResultsStateEnum.RESULTS.getCssSelector();
+        return getWait().until(WaitConditions.stableFor(resultsSelector, RESULTS_STABLE_FOR));
+    }
+
+    /**
+     * Read every search result of the page in one go. Prefer this over
+     * {@link #getAllResultsList() getAllResultsList} whenever we need to look at
+     * many results, as it costs a single call to the browser no matter how
+     * many results there are, instead of a few calls per result.
+     *
+     * @return an unmodifiable <code>List</code> of
+     * <code>SearchResultRecord</code>s in the order they appear on the page,
+     * empty if our search returned no results.
+     */
+    public List<SearchResultRecord> extractResultRecords() {
+        if (!hasResults()) {
+            return Collections.emptyList();
+        }
+        getWait().until(WaitConditions.stableFor(ResultsStateEnum.RESULTS.getCssSelector(), RESULTS_STABLE_FOR));
+
+        List<?> rawRecords = (List<?>) ((JavascriptExecutor) getWebDriver()).executeScript(
+                EXTRACT_RESULTS_SCRIPT, ResultsStateEnum.RESULTS.getCssSelector());
+
+        List<SearchResultRecord> records = new ArrayList<>(rawRecords.size());
+        for (Object rawRecord : rawRecords) {
+            Map<?, ?> fields = (Map<?, ?>) rawRecord;
+            records.add(new SearchResultRecord(records.size() + 1,
+                    (String) fields.get("price"),
+                    (String) fields.get("title"),
+                    (String) fields.get("area"),
+                    (String) fields.get("link")));
+        }
+        return Collections.unmodifiableList(records);
+    }
+
+    /**
+     * Check every result of the page against the given rule, reading all of
+     * them with a single call to the browser (see
+     * {@link #extractResultRecords() extractResultRecords}). Unlike asserting on
+     * each result, this reports every result that fails and not just the
+     * first one.
+     *
+     * @param description what the rule checks, used in the report.
+     * @param rule the rule that every result must pass, see
+     * {@link gr.xe.selenium.pom.model.ResultPredicates ResultPredicates}.
+     * @return a <code>ResultValidation</code> with every violation.
+     */
+    public ResultValidation validateResults(String description, Predicate<SearchResultRecord> rule) {
+        List<SearchResultRecord> records = extractResultRecords();
+        List<SearchResultRecord> violations = new ArrayList<>();
+        for (SearchResultRecord record : records) {
+            if (!rule.test(record)) {
+                violations.add(record);
+            }
+        }
+        return new ResultValidation(description, records.size(), violations);
     }
 
     /**
@@ -125,6 +354,8 @@ public class ResultsPage extends BasePOM {
         getWait().until(
                 ExpectedConditions.visibilityOfElementLocated(
                         By.cssSelector("[data-testid=filters-button]"))).click();
+        //A new modal is opening, forget the one we may have seen before.
+        getElementCache().invalidate();
 
         return this;
     }
@@ -138,9 +369,8 @@ public class ResultsPage extends BasePOM {
      * filters.
      */
     public WebElement getFiltersModalWebElement() {
-        return getWait().until(
-                ExpectedConditions.visibilityOfElementLocated(
-                        By.cssSelector("[data-testid=xe-modal-wrapper] div.xe-modal-content")));
+        return getCachedVisibleElement(
+                By.cssSelector("[data-testid=xe-modal-wrapper] div.xe-modal-content"));
     }
 
     /**
@@ -176,6 +406,7 @@ public class ResultsPage extends BasePOM {
         //It ay be out of view so scroll to see it.
         scrollToView(submitButtonWebElement);
         submitButtonWebElement.click();
+        getElementCache().invalidate();
 
         return this;
     }
@@ -190,6 +421,7 @@ public class ResultsPage extends BasePOM {
         getWait().until(
                 ExpectedConditions.visibilityOfElementLocated(
                         By.id("save-search-btn"))).click();
+        getElementCache().invalidate();
         return this;
     }
 
@@ -208,6 +440,7 @@ public class ResultsPage extends BasePOM {
         getWait().until(
                 ExpectedConditions.visibilityOfElementLocated(
                         By.cssSelector("[data-testid=submit-button]"))).click();
+        getElementCache().invalidate();
 
         return this;
     }
@@ -220,9 +453,7 @@ public class ResultsPage extends BasePOM {
      * Success Modal element.
      */
     public WebElement getSuccessModalAfterSavingSearch() {
-        return getWait().until(
-                ExpectedConditions.visibilityOfElementLocated(
-                        By.cssSelector("div.xe-modal-content")));
+        return getCachedVisibleElement(By.cssSelector("div.xe-modal-content"));
     }
 
     /**
@@ -265,6 +496,7 @@ public class ResultsPage extends BasePOM {
     public ResultsPage closeSuccessModalAfterSavingSearch() {
         WebElement successModal = this.getSuccessModalAfterSavingSearch();
         successModal.findElement(By.cssSelector("[data-testid=xe-modal-close]")).click();
+        getElementCache().invalidate();
 
         return this;
     }
@@ -280,7 +512,10 @@ public class ResultsPage extends BasePOM {
                 ExpectedConditions.visibilityOfElementLocated(
                         By.cssSelector("[data-testid=login-popup] a"))).click();
 
-        return new LoginPage(getWebDriver());
+        LoginPage loginPage = new LoginPage(getWebDriver());
+        loginPage.waitUntilReady();
+        loginPage.capturePageTiming();
+        return loginPage;
     }
 
 }
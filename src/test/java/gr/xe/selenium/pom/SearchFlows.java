@@ -0,0 +1,69 @@
+package gr.xe.selenium.pom;
+
+import gr.xe.selenium.pom.enums.PropertyDropdownEnum;
+import gr.xe.selenium.pom.enums.TransactionDropdownEnum;
+
+/**
+ * The {@link Flow}s that more than one of our tests start with, kept in one
+ * place so that the tests, their checkpoints and the load scenarios of
+ * <code>gr.xe.selenium.load</code> all run the very same steps.
+ *
+ * @author pkalogerop
+ */
+public final class SearchFlows {
+
+    /**
+     * Open the Main Page.
+     */
+    public static final Flow<MainPage> MAIN_PAGE = Flow.
+            start("main page", driver -> new MainPage(driver).goTo());
+
+    /**
+     * Main Page, property tab, search.
+     */
+    public static final Flow<ResultsPage> PROPERTY_SEARCH = MAIN_PAGE.
+            then("property tab", MainPage::clickPropertyTab).
+            then("search", MainPage::clickSearchButton);
+
+    /**
+     * Main Page, buy a residence, search.
+     */
+    public static final Flow<ResultsPage> RESIDENCE_FOR_SALE_RESULTS = MAIN_PAGE.
+            then("transaction and property", (MainPage mainPage) -> mainPage.
+                    selectFromTransactionDropdownMenu(TransactionDropdownEnum.BUY).
+                    selectFromPropertyDropdownMenu(PropertyDropdownEnum.RESIDENCE)).
+            then("search", MainPage::clickSearchButton);
+
+    /**
+     * Main Page, land for sale link, search.
+     */
+    public static final Flow<ResultsPage> LAND_SALE_RESULTS = MAIN_PAGE.
+            then("land sale link", MainPage::clickLandSaleLink).
+            then("search", MainPage::clickSearchButton);
+
+    /**
+     * The land for sale results, filtered down to plots.
+     */
+    public static final Flow<ResultsPage> LAND_SALE_PLOT = LAND_SALE_RESULTS.
+            then("filters", ResultsPage::clickFiltersButton).
+            then("plot filter", (ResultsPage resultsPage) -> resultsPage.
+                    selectPlotLandFromFilters().
+                    clickSubmitFiltersButton());
+
+    private SearchFlows() {
+    }
+
+    /**
+     * The residences for sale, filtered by a minimum price.
+     *
+     * @param minimumPrice the minimum price of the filter.
+     * @return a <code>Flow</code> that ends on the filtered results.
+     */
+    public static Flow<ResultsPage> priceFilter(int minimumPrice) {
+        return RESIDENCE_FOR_SALE_RESULTS.
+                then("price filter", (ResultsPage resultsPage) -> resultsPage.
+                        clickPriceFilter().
+                        setMinimumPriceFilter(minimumPrice).
+                        applyPriceFilter());
+    }
+}
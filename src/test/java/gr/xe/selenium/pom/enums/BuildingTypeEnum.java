@@ -0,0 +1,35 @@
+package gr.xe.selenium.pom.enums;
+
+/**
+ * This <code>Enum</code> contains the building types that we can filter our
+ * search results by, such as the plot of land option of the Filters modal of
+ * the Search Results page.
+ * @author pkalogerop
+ */
+public enum BuildingTypeEnum {
+
+    APARTMENT("apartment"),
+    DETACHED_HOUSE("detached_house"),
+    MAISONETTE("maisonette"),
+    OFFICE("office"),
+    STORE("store"),
+    WAREHOUSE("warehouse"),
+    PLOT_OF_LAND("plot_of_land"),
+    PARCEL("parcel"),
+    PARKING_SPOT("parking_spot");
+
+    private final String urlValue;
+
+    BuildingTypeEnum(String urlValue) {
+        this.urlValue = urlValue;
+    }
+
+    /**
+     * This is how the building type appears in the url of the Search Results
+     * page, as the <code>building_type</code> parameter.
+     * @return a <code>String</code> such as "plot_of_land".
+     */
+    public String getUrlValue() {
+        return urlValue;
+    }
+}
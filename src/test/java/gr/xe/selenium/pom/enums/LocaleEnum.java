@@ -0,0 +1,37 @@
+package gr.xe.selenium.pom.enums;
+
+/**
+ * This <code>Enum</code> describes the locales that our localization bundles
+ * cover. Every locale has its own bundle under <code>src/main/localization</code>.
+ * @author pkalogerop
+ */
+public enum LocaleEnum {
+
+    /*
+     * The site is in Greek by default, so this is the bundle we fall back to.
+     */
+    GR("dummyResources.json"),
+    EN("dummyResources_en.json");
+
+    private final String bundleFileName;
+
+    LocaleEnum(String bundleFileName) {
+        this.bundleFileName = bundleFileName;
+    }
+
+    /**
+     * The file name of the localization bundle of this locale.
+     * @return a <code>String</code> such as "dummyResources.json".
+     */
+    public String getBundleFileName() {
+        return bundleFileName;
+    }
+
+    /**
+     * The locale that we use when none is specified.
+     * @return the <code>LocaleEnum</code> of the site's default language.
+     */
+    public static LocaleEnum getDefault() {
+        return GR;
+    }
+}
@@ -7,17 +7,19 @@ package gr.xe.selenium.pom.enums;
  */
 public enum PropertyDropdownEnum {
     
-    RESIDENCE("[data-testid=re_residence]"),
-    PROFESSIONAL("[data-testid=re_prof]"),
-    LAND("[data-testid=re_land]"),
-    PARKING("[data-testid=re_parking]"),
-    MISC("[data-testid=re_misc]");
+    RESIDENCE("[data-testid=re_residence]", "re_residence"),
+    PROFESSIONAL("[data-testid=re_prof]", "re_prof"),
+    LAND("[data-testid=re_land]", "re_land"),
+    PARKING("[data-testid=re_parking]", "re_parking"),
+    MISC("[data-testid=re_misc]", "re_misc");
     
     
     private final String cssSelector;
+    private final String urlValue;
     
-    PropertyDropdownEnum(String cssSelector) {
+    PropertyDropdownEnum(String cssSelector, String urlValue) {
         this.cssSelector = cssSelector;
+        this.urlValue = urlValue;
     }
     
     /**
@@ -28,6 +30,15 @@ public enum PropertyDropdownEnum {
     public String getCssSelector() {
         return cssSelector;
     }
+
+    /**
+     * This is how the property appears in the url of the Search Results page,
+     * as the <code>item_type</code> parameter.
+     * @return a <code>String</code> such as "re_residence".
+     */
+    public String getUrlValue() {
+        return urlValue;
+    }
     
     
 }
@@ -0,0 +1,28 @@
+package gr.xe.selenium.pom.enums;
+
+/**
+ * This <code>Enum</code> describes what the Search Results page shows once it
+ * has finished rendering our search: either a list of results or the No
+ * Results container.
+ * @author pkalogerop
+ */
+public enum ResultsStateEnum {
+
+    RESULTS("[data-testid='property-ad-container']"),
+    NO_RESULTS("[data-testid=no-results]");
+
+    private final String cssSelector;
+
+    ResultsStateEnum(String cssSelector) {
+        this.cssSelector = cssSelector;
+    }
+
+    /**
+     * This is the css selector of the element whose presence means that the
+     * results page is in this state.
+     * @return a <code>String</code> representation of a css selector.
+     */
+    public String getCssSelector() {
+        return cssSelector;
+    }
+}
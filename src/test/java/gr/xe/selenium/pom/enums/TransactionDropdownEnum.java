@@ -7,16 +7,18 @@ package gr.xe.selenium.pom.enums;
  */
 public enum TransactionDropdownEnum {
     
-    BUY("[data-id=buy]"),
-    RENT("[data-id=rent]"),
-    VALUABLE_CONSIDERATION("[data-id=valuable-consideration]"),
-    EXCHANGE("[data-id=exchange]");
+    BUY("[data-id=buy]", "buy"),
+    RENT("[data-id=rent]", "rent"),
+    VALUABLE_CONSIDERATION("[data-id=valuable-consideration]", "valuable-consideration"),
+    EXCHANGE("[data-id=exchange]", "exchange");
     
         
     private final String cssSelector;
+    private final String urlValue;
     
-    TransactionDropdownEnum(String cssSelector) {
+    TransactionDropdownEnum(String cssSelector, String urlValue) {
         this.cssSelector = cssSelector;
+        this.urlValue = urlValue;
     }
     
     /**
@@ -27,4 +29,13 @@ public enum TransactionDropdownEnum {
     public String getCssSelector() {
         return cssSelector;    
     }
+
+    /**
+     * This is how the transaction appears in the url of the Search Results
+     * page, as the <code>transaction_name</code> parameter.
+     * @return a <code>String</code> such as "buy".
+     */
+    public String getUrlValue() {
+        return urlValue;
+    }
 }
@@ -0,0 +1,30 @@
+package gr.xe.selenium.pom.model;
+
+import gr.xe.selenium.utilities.PriceParser;
+import java.util.function.Predicate;
+
+/**
+ * Ready made checks for
+ * {@link gr.xe.selenium.pom.ResultsPage#validateResults(String, Predicate) validateResults}.
+ *
+ * @author pkalogerop
+ */
+public final class ResultPredicates {
+
+    private ResultPredicates() {
+    }
+
+    /**
+     * A result passes if it shows a price within the given bounds.
+     *
+     * @param minimumPrice the lowest acceptable price, inclusive.
+     * @param maximumPrice the highest acceptable price, inclusive.
+     * @return a <code>Predicate</code> over <code>SearchResultRecord</code>s.
+     */
+    public static Predicate<SearchResultRecord> priceBetween(long minimumPrice, long maximumPrice) {
+        return record -> {
+            long price = PriceParser.parse(record.getPriceText());
+            return price >= 0 && price >= minimumPrice && price <= maximumPrice;
+        };
+    }
+}
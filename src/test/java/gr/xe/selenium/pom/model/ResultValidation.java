@@ -0,0 +1,65 @@
+package gr.xe.selenium.pom.model;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of checking every result of the Results Page against a rule. See
+ * {@link gr.xe.selenium.pom.ResultsPage#validateResults(String, java.util.function.Predicate) validateResults}.
+ *
+ * @author pkalogerop
+ */
+public final class ResultValidation {
+
+    private final String description;
+    private final int checkedCount;
+    private final List<SearchResultRecord> violations;
+
+    /**
+     * @param description what we checked, such as "price between 0 and 500000".
+     * @param checkedCount how many results we checked.
+     * @param violations the results that failed the check.
+     */
+    public ResultValidation(String description, int checkedCount, List<SearchResultRecord> violations) {
+        this.description = description;
+        this.checkedCount = checkedCount;
+        this.violations = Collections.unmodifiableList(violations);
+    }
+
+    /**
+     * @return <code>true</code> if every result we checked passed.
+     */
+    public boolean isValid() {
+        return violations.isEmpty();
+    }
+
+    /**
+     * @return how many results we checked.
+     */
+    public int getCheckedCount() {
+        return checkedCount;
+    }
+
+    /**
+     * @return the results that failed the check, in the order they appear on
+     * the page. Each one knows its position and its raw text.
+     */
+    public List<SearchResultRecord> getViolations() {
+        return violations;
+    }
+
+    /**
+     * @return a report that lists every violation, fit for an assertion
+     * message.
+     */
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        report.append(violations.size()).append(" of ").append(checkedCount)
+                .append(" results failed \"").append(description).append("\"");
+        for (SearchResultRecord violation : violations) {
+            report.append(System.lineSeparator()).append("  ").append(violation);
+        }
+        return report.toString();
+    }
+}
@@ -0,0 +1,193 @@
+package gr.xe.selenium.pom.model;
+
+import gr.xe.selenium.pom.enums.BuildingTypeEnum;
+import gr.xe.selenium.pom.enums.PropertyDropdownEnum;
+import gr.xe.selenium.pom.enums.TransactionDropdownEnum;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.StringJoiner;
+
+/**
+ * Everything that describes a property search: what we get from the Main
+ * Page form and the filters of the Search Results page. Build it with
+ * {@link #builder() builder} and open its results directly with
+ * {@link gr.xe.selenium.pom.ResultsPage#goTo(SearchCriteria) ResultsPage.goTo},
+ * for tests that only care about the Search Results page and not about how we
+ * got there.
+ *
+ * @author pkalogerop
+ */
+public final class SearchCriteria {
+
+    private final TransactionDropdownEnum transaction;
+    private final PropertyDropdownEnum propertyType;
+    private final String area;
+    private final Integer minimumPrice;
+    private final Integer maximumPrice;
+    private final Set<BuildingTypeEnum> buildingTypes;
+
+    private SearchCriteria(Builder builder) {
+        this.transaction = builder.transaction;
+        this.propertyType = builder.propertyType;
+        this.area = builder.area;
+        this.minimumPrice = builder.minimumPrice;
+        this.maximumPrice = builder.maximumPrice;
+        this.buildingTypes = Collections.unmodifiableSet(builder.buildingTypes.isEmpty()
+                ? EnumSet.noneOf(BuildingTypeEnum.class) : EnumSet.copyOf(builder.buildingTypes));
+    }
+
+    /**
+     * @return a new <code>Builder</code>, for a search to buy a residence
+     * unless we say otherwise.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public TransactionDropdownEnum getTransaction() {
+        return transaction;
+    }
+
+    public PropertyDropdownEnum getPropertyType() {
+        return propertyType;
+    }
+
+    /**
+     * @return the area we search in, or <code>null</code> for everywhere.
+     */
+    public String getArea() {
+        return area;
+    }
+
+    /**
+     * @return the minimum price, or <code>null</code> for no minimum.
+     */
+    public Integer getMinimumPrice() {
+        return minimumPrice;
+    }
+
+    /**
+     * @return the maximum price, or <code>null</code> for no maximum.
+     */
+    public Integer getMaximumPrice() {
+        return maximumPrice;
+    }
+
+    /**
+     * @return the building types we filter by, empty for all of them.
+     */
+    public Set<BuildingTypeEnum> getBuildingTypes() {
+        return buildingTypes;
+    }
+
+    /**
+     * Build the url of the Search Results page for these criteria.
+     *
+     * @param baseUrl the base url of the site, such as https://www.xe.gr/
+     * @return the url of the results of this search.
+     */
+    public String toResultsUrl(String baseUrl) {
+        StringBuilder url = new StringBuilder(baseUrl).append("property/results?transaction_name=")
+                .append(transaction.getUrlValue())
+                .append("&item_type=").append(propertyType.getUrlValue());
+        if (area != null) {
+            url.append("&geo_place=").append(encode(area));
+        }
+        if (minimumPrice != null) {
+            url.append("&minimum_price=").append(minimumPrice);
+        }
+        if (maximumPrice != null) {
+            url.append("&maximum_price=").append(maximumPrice);
+        }
+        if (!buildingTypes.isEmpty()) {
+            StringJoiner joiner = new StringJoiner(",");
+            for (BuildingTypeEnum buildingType : buildingTypes) {
+                joiner.add(buildingType.getUrlValue());
+            }
+            url.append("&building_type=").append(encode(joiner.toString()));
+        }
+        return url.toString();
+    }
+
+    @Override
+    public String toString() {
+        return transaction + " x " + propertyType
+                + (area == null ? "" : " in " + area)
+                + (minimumPrice == null && maximumPrice == null ? ""
+                : " [" + (minimumPrice == null ? "" : minimumPrice) + "-"
+                + (maximumPrice == null ? "" : maximumPrice) + "]")
+                + (buildingTypes.isEmpty() ? "" : " " + buildingTypes);
+    }
+
+    private static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, StandardCharsets.UTF_8.name());
+        } catch (UnsupportedEncodingException ex) {
+            //UTF-8 is always supported.
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Builds <code>SearchCriteria</code> step by step.
+     */
+    public static final class Builder {
+
+        private TransactionDropdownEnum transaction = TransactionDropdownEnum.BUY;
+        private PropertyDropdownEnum propertyType = PropertyDropdownEnum.RESIDENCE;
+        private String area;
+        private Integer minimumPrice;
+        private Integer maximumPrice;
+        private final Set<BuildingTypeEnum> buildingTypes = EnumSet.noneOf(BuildingTypeEnum.class);
+
+        private Builder() {
+        }
+
+        public Builder transaction(TransactionDropdownEnum transaction) {
+            this.transaction = transaction;
+            return this;
+        }
+
+        public Builder propertyType(PropertyDropdownEnum propertyType) {
+            this.propertyType = propertyType;
+            return this;
+        }
+
+        public Builder area(String area) {
+            this.area = area;
+            return this;
+        }
+
+        public Builder minimumPrice(Integer minimumPrice) {
+            this.minimumPrice = minimumPrice;
+            return this;
+        }
+
+        public Builder maximumPrice(Integer maximumPrice) {
+            this.maximumPrice = maximumPrice;
+            return this;
+        }
+
+        public Builder buildingType(BuildingTypeEnum buildingType) {
+            this.buildingTypes.add(buildingType);
+            return this;
+        }
+
+        /**
+         * @return the <code>SearchCriteria</code>.
+         * @throws IllegalStateException if the minimum price is higher than
+         * the maximum price.
+         */
+        public SearchCriteria build() {
+            if (minimumPrice != null && maximumPrice != null && minimumPrice > maximumPrice) {
+                throw new IllegalStateException("The minimum price " + minimumPrice
+                        + " is higher than the maximum price " + maximumPrice + ".");
+            }
+            return new SearchCriteria(this);
+        }
+    }
+}
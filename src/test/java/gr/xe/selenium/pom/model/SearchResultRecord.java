@@ -0,0 +1,74 @@
+package gr.xe.selenium.pom.model;
+
+/**
+ * A snapshot of one search result card of the Results Page, as it was when we
+ * read it. Unlike a <code>WebElement</code> reading its fields costs nothing,
+ * so this is what assertions over many results should work with. See
+ * {@link gr.xe.selenium.pom.ResultsPage#extractResultRecords() extractResultRecords}.
+ *
+ * @author pkalogerop
+ */
+public final class SearchResultRecord {
+
+    private final int position;
+    private final String priceText;
+    private final String title;
+    private final String area;
+    private final String link;
+
+    /**
+     * @param position the position of the card on the page, starting from 1.
+     * @param priceText the price exactly as displayed, such as "723.000 €".
+     * @param title the title of the ad.
+     * @param area the area of the property, as displayed.
+     * @param link the url of the ad.
+     */
+    public SearchResultRecord(int position, String priceText, String title, String area, String link) {
+        this.position = position;
+        this.priceText = priceText;
+        this.title = title;
+        this.area = area;
+        this.link = link;
+    }
+
+    /**
+     * @return the position of the card on the page, starting from 1.
+     */
+    public int getPosition() {
+        return position;
+    }
+
+    /**
+     * @return the price exactly as displayed, or an empty <code>String</code>
+     * if the card shows no price.
+     */
+    public String getPriceText() {
+        return priceText;
+    }
+
+    /**
+     * @return the title of the ad.
+     */
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * @return the area of the property, as displayed.
+     */
+    public String getArea() {
+        return area;
+    }
+
+    /**
+     * @return the url of the ad.
+     */
+    public String getLink() {
+        return link;
+    }
+
+    @Override
+    public String toString() {
+        return "#" + position + " " + title + " (" + area + "): " + priceText;
+    }
+}
@@ -0,0 +1,48 @@
+package gr.xe.selenium.qaChallenge;
+
+import gr.xe.selenium.driver.DriverManager;
+import org.openqa.selenium.WebDriver;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.AfterSuite;
+
+/**
+ * This is the base class for all our test classes. It gives every test the
+ * <code>WebDriver</code> of the thread that it runs on, so that our tests can
+ * safely run in parallel.
+ *
+ * @author pkalogerop
+ */
+public abstract class BaseTest {
+
+    /**
+     * Get the <code>WebDriver</code> for the current test. Do not keep it in a
+     * field, with parallel execution each thread has its own driver.
+     *
+     * @return the <code>WebDriver</code> of the current thread.
+     */
+    protected WebDriver getDriver() {
+        return DriverManager.getDriver();
+    }
+
+    /**
+     * Return the browser of the current thread to the session pool after every
+     * test method, so that the next method, on whichever thread it runs,
+     * leases a clean session. Otherwise threads that TestNG creates only for
+     * a while would keep their browsers until the end of the suite.
+     */
+    @AfterMethod(alwaysRun = true)
+    public void releaseDriver() {
+        DriverManager.releaseDriver();
+    }
+
+    /**
+     * Return the browsers that are still leased to the session pool once
+     * every test class of the suite has finished, such as the ones that
+     * configuration methods asked for outside of any test method, and quit
+     * every browser of the pool.
+     */
+    @AfterSuite(alwaysRun = true)
+    public void releaseDrivers() {
+        DriverManager.releaseAllDrivers();
+    }
+}
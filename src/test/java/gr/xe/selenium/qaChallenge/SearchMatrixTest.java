@@ -0,0 +1,169 @@
+package gr.xe.selenium.qaChallenge;
+
+import gr.xe.selenium.pom.MainPage;
+import gr.xe.selenium.pom.ResultsPage;
+import gr.xe.selenium.pom.enums.PropertyDropdownEnum;
+import gr.xe.selenium.pom.enums.ResultsStateEnum;
+import gr.xe.selenium.pom.enums.TransactionDropdownEnum;
+import gr.xe.selenium.pom.model.ResultPredicates;
+import gr.xe.selenium.pom.model.ResultValidation;
+import gr.xe.selenium.pom.model.SearchCriteria;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import static org.testng.AssertJUnit.assertTrue;
+import org.testng.ITestResult;
+import org.testng.Reporter;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+/**
+ * Runs the search for every combination of transaction and property type of
+ * the Main Page dropdowns and checks the results of each one. Every
+ * combination runs once without price bounds and once more for each price
+ * range given with <code>-Dmatrix.priceBounds</code>, for instance
+ * <code>-Dmatrix.priceBounds=100000-500000,0-50000</code>.
+ *
+ * <p>
+ * Each search opens its results directly from its url. Run with
+ * <code>-Dmatrix.viaMainPage=true</code> to go through the Main Page form and
+ * the price filter instead.
+ *
+ * <p>
+ * The combinations run in parallel on TestNG's data provider threads
+ * (<code>-Dtest.threadCount</code> of them). Every combination leases a clean
+ * browser from the session pool and gives it back when it finishes (see
+ * {@link BaseTest#releaseDriver()}), so no thread keeps a browser once the
+ * data provider is done. Once all of them have finished, a single table with
+ * the outcome and the duration of every combination is written to the TestNG
+ * output.
+ *
+ * @author pkalogerop
+ */
+public class SearchMatrixTest extends BaseTest {
+
+    /*
+    The outcome of every cell of the matrix, keyed by its description, filled
+    in by the threads of the data provider.
+    */
+    private final Map<String, String> cellOutcomes = new ConcurrentHashMap<>();
+    private final Map<String, String> cellStates = new ConcurrentHashMap<>();
+
+    /**
+     * Every transaction, times every property type, times every price range.
+     *
+     * @return the rows of our matrix: transaction, property type, minimum
+     * price and maximum price (both <code>null</code> for no price bounds).
+     */
+    @DataProvider(name = "searchMatrix", parallel = true)
+    public Object[][] searchMatrix() {
+        List<Integer[]> priceBounds = new ArrayList<>();
+        priceBounds.add(new Integer[]{null, null});
+        for (String range : System.getProperty("matrix.priceBounds", "").split(",")) {
+            if (!range.trim().isEmpty()) {
+                String[] bounds = range.trim().split("-");
+                priceBounds.add(new Integer[]{Integer.valueOf(bounds[0]), Integer.valueOf(bounds[1])});
+            }
+        }
+
+        List<Object[]> rows = new ArrayList<>();
+        for (TransactionDropdownEnum transaction : TransactionDropdownEnum.values()) {
+            for (PropertyDropdownEnum property : PropertyDropdownEnum.values()) {
+                for (Integer[] bounds : priceBounds) {
+                    rows.add(new Object[]{transaction, property, bounds[0], bounds[1]});
+                }
+            }
+        }
+        return rows.toArray(new Object[0][]);
+    }
+
+    /**
+     * Search for the given transaction and property type and check that the
+     * page settles on either results or the No Results container. If we have
+     * price bounds, every result must be within them.
+     *
+     * @param transaction the transaction to select.
+     * @param property the property type to select.
+     * @param minimumPrice the minimum price filter, or <code>null</code>.
+     * @param maximumPrice the maximum price filter, or <code>null</code>.
+     */
+    @Test(dataProvider = "searchMatrix")
+    public void searchMatrixTest(TransactionDropdownEnum transaction, PropertyDropdownEnum property,
+            Integer minimumPrice, Integer maximumPrice) {
+
+        ResultsPage resultsPage;
+        if (Boolean.getBoolean("matrix.viaMainPage")) {
+            resultsPage = new MainPage(getDriver()).
+                    goTo().
+                    selectFromTransactionDropdownMenu(transaction).
+                    selectFromPropertyDropdownMenu(property).
+                    clickSearchButton();
+
+            if (minimumPrice != null) {
+                resultsPage.clickPriceFilter().
+                        setMinimumPriceFilter(minimumPrice).
+                        setMaximumPriceFilter(maximumPrice).
+                        applyPriceFilter();
+            }
+        } else {
+            resultsPage = new ResultsPage(getDriver()).goTo(SearchCriteria.builder().
+                    transaction(transaction).
+                    propertyType(property).
+                    minimumPrice(minimumPrice).
+                    maximumPrice(maximumPrice).
+                    build());
+        }
+
+        //Some combinations may have no results at all, that is fine.
+        ResultsStateEnum resultsState = resultsPage.getResultsState();
+        cellStates.put(describeCell(transaction, property, minimumPrice, maximumPrice), resultsState.name());
+
+        if (minimumPrice != null && resultsState == ResultsStateEnum.RESULTS) {
+            ResultValidation validation = resultsPage.validateResults(
+                    "price between " + minimumPrice + " and " + maximumPrice,
+                    ResultPredicates.priceBetween(minimumPrice, maximumPrice));
+            assertTrue(validation.toString(), validation.isValid());
+        }
+    }
+
+    /**
+     * Keep the outcome of the cell that has just run, for the table.
+     *
+     * @param result the result of the cell.
+     */
+    @AfterMethod(alwaysRun = true)
+    public void recordCell(ITestResult result) {
+        Object[] parameters = result.getParameters();
+        if (parameters.length < 4) {
+            return;
+        }
+        String cell = describeCell(parameters[0], parameters[1], parameters[2], parameters[3]);
+        String status = result.getStatus() == ITestResult.SUCCESS ? "PASS"
+                : result.getStatus() == ITestResult.FAILURE ? "FAIL" : "SKIP";
+        cellOutcomes.put(cell, String.format("%-4s %8d", status, result.getEndMillis() - result.getStartMillis()));
+    }
+
+    /**
+     * Write one table with every cell of the matrix.
+     */
+    @AfterClass(alwaysRun = true)
+    public void reportMatrix() {
+        StringBuilder table = new StringBuilder(String.format("%-50s %-10s %-4s %8s%n",
+                "search", "state", "test", "ms"));
+        for (Object[] row : searchMatrix()) {
+            String cell = describeCell(row[0], row[1], row[2], row[3]);
+            table.append(String.format("%-50s %-10s %s%n", cell, cellStates.getOrDefault(cell, "-"),
+                    cellOutcomes.getOrDefault(cell, "NOT RUN")));
+        }
+        Reporter.log("Search matrix:\n" + table, true);
+    }
+
+    private static String describeCell(Object transaction, Object property, Object minimumPrice,
+            Object maximumPrice) {
+        String cell = transaction + " x " + property;
+        return minimumPrice == null ? cell : cell + " [" + minimumPrice + "-" + maximumPrice + "]";
+    }
+}
@@ -1,53 +1,55 @@
 package gr.xe.selenium.qaChallenge;
 
+import gr.xe.selenium.api.ApiStatusException;
+import gr.xe.selenium.api.SavedSearchApiClient;
+import gr.xe.selenium.driver.BrowserFactory;
 import gr.xe.selenium.pom.BasePOM;
-import gr.xe.selenium.pom.LoginPage;
-import gr.xe.selenium.pom.MainPage;
+import gr.xe.selenium.pom.Checkpoint;
 import gr.xe.selenium.pom.ResultsPage;
+import gr.xe.selenium.pom.SearchFlows;
 import gr.xe.selenium.pom.enums.LocalizationEnum;
+import gr.xe.selenium.session.AuthSessionCache;
 import gr.xe.selenium.utilities.LocalizationReader;
-import gr.xe.selenium.utilities.TestUser;
+import gr.xe.selenium.utilities.TestUserPool;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
 import java.util.List;
 import org.openqa.selenium.By;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebElement;
-import org.openqa.selenium.chrome.ChromeDriver;
 import org.openqa.selenium.support.ui.ExpectedConditions;
 import org.openqa.selenium.support.ui.WebDriverWait;
 import org.testng.Assert;
+import org.testng.Reporter;
 import static org.testng.AssertJUnit.assertEquals;
 import static org.testng.AssertJUnit.assertTrue;
-import org.testng.annotations.AfterClass;
-import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
-public class SelectLandForSaleApplyPlotFilterSaveSearch {
+public class SelectLandForSaleApplyPlotFilterSaveSearch extends BaseTest {
+
+    /*
+    Every test of this class starts by searching for land for sale from the
+    Main Page. Once one of them has done it, the others open the results
+    directly, or just keep using them if the browser is still there.
+     */
+    private static final Checkpoint<ResultsPage> LAND_SALE_RESULTS = SearchFlows.LAND_SALE_RESULTS.
+            checkpoint(ResultsPage::new,
+                    Arrays.asList(
+                            By.cssSelector("[data-testid=filters-button]"),
+                            By.cssSelector("[data-testid=save-search-btn]")),
+                    Arrays.asList(
+                            By.cssSelector("[data-testid=xe-modal-wrapper] div.xe-modal-content"),
+                            By.cssSelector("[data-testid=login-popup]")));
 
-    private WebDriver driver; //REFACTORED: set it to private
     WebDriverWait wait; //REFACTORED: set it to private
 
     String username = "FILL IN YOUR USERNAME HERE";
     String password = "FILL IN YOUR PASSWORD HERE";
 
-    @BeforeClass
-    public void initialize() {
-        setChromeDriver();
-
-        driver.manage().window().maximize();
-
-    }
-
-    private void setChromeDriver() {
-        String path = System.getProperty("user.dir");
-        String chromeDriverPath = path + "/src/main/resources/chromedriver.exe";
-        System.setProperty("webdriver.chrome.driver", chromeDriverPath);
-        driver = new ChromeDriver();
-    }
-
     @Test(enabled = false, priority = 0, description = "Visit gr.xe.gr, select land for sale from the categories and perform a search")
     public void visitXeSelectLandForSaleFromCategoriesPerformSearch() {
-        //We start the chromedriver
-        driver = new ChromeDriver();
+        //We start the browser
+        WebDriver driver = BrowserFactory.createBrowser();
         //We define the implicit wait for this driver
         wait = new WebDriverWait(driver, 15);
         //We visit xe.gr
@@ -61,7 +63,7 @@ public class SelectLandForSaleApplyPlotFilterSaveSearch {
     @Test(enabled = true, priority = 0, description = "Visit gr.xe.gr, select land for sale from the categories and perform a search")
     public void visitXeSelectLandForSaleFromCategoriesPerformSearchRefactored() {
 
-        ResultsPage resultsPage = new MainPage(driver).goTo().clickLandSaleLink().clickSearchButton();
+        ResultsPage resultsPage = LAND_SALE_RESULTS.reach(getDriver());
 
         //Assert that we get a list of results
         try {
@@ -77,6 +79,7 @@ public class SelectLandForSaleApplyPlotFilterSaveSearch {
 
     @Test(enabled = false, priority = 1, description = "Expand the filters and apply plot")
     public void expandFiltersApplyPlot() {
+        WebDriver driver = getDriver();
         //The cookies banner obstructs our test here so we have to close it
         closeCookiesBannerIfPresent();
         //Expand the filters tab
@@ -89,10 +92,7 @@ public class SelectLandForSaleApplyPlotFilterSaveSearch {
 
     @Test(enabled = true, priority = 1, description = "Expand the filters and apply plot")
     public void expandFiltersApplyPlotRefactored() {
-        ResultsPage resultsPage = new MainPage(driver).
-                goTo().
-                clickLandSaleLink().
-                clickSearchButton().
+        ResultsPage resultsPage = LAND_SALE_RESULTS.reach(getDriver()).
                 clickFiltersButton();
         /*
         We will check now if the filters modal is present in the DOM. If
@@ -110,6 +110,7 @@ public class SelectLandForSaleApplyPlotFilterSaveSearch {
 
     @Test(enabled = false, priority = 2, description = "Save the previous search")
     public void saveSearch() {
+        WebDriver driver = getDriver();
         //Click to save the search
         driver.findElement(By.cssSelector("[data-testid='save-search-btn']")).click();
         //Wait for username to be visible and fill it in
@@ -134,28 +135,66 @@ public class SelectLandForSaleApplyPlotFilterSaveSearch {
          */
         logoutIfNecessary();
 
-        ResultsPage resultsPage = new MainPage(driver).
-                goTo().
-                clickLandSaleLink().
-                clickSearchButton().
+        /*
+        Saving a search needs a logged in user. We lease an account that no
+        other test is using, so that parallel runs do not share the same
+        saved searches. We log in through the UI only the first time, after
+        that the cached session is injected in our browser.
+         */
+        try (TestUserPool.Lease lease = TestUserPool.getInstance().lease()) {
+            AuthSessionCache.getInstance().logIn(getDriver(), lease.getTestUser());
+
+            /*
+            A search that is already saved cannot be saved again, so we delete
+            the saved searches of the user before and after the test, through
+            the api and not through the UI.
+             */
+            deleteSavedSearches();
+            try {
+                saveLandForSaleSearch();
+            } finally {
+                deleteSavedSearches();
+            }
+        }
+    }
+
+    /*
+     * Deletes the saved searches of the logged in user, unless the cleanup is
+     * turned off with -Dapi.cleanupSavedSearches=false or the site has no
+     * saved searches api (404, a redirect or an answer that is not JSON, see
+     * ApiStatusException.isApiMissing()). Then they have to be deleted by
+     * hand, as before. Any other error, such as a session that the api does not take,
+     * fails the test, because the next run would not be able to save.
+     */
+    private void deleteSavedSearches() {
+        if (!Boolean.parseBoolean(System.getProperty("api.cleanupSavedSearches", "true"))) {
+            return;
+        }
+        try {
+            int deleted = SavedSearchApiClient.fromDriver(getDriver()).deleteAll();
+            Reporter.log("Deleted " + deleted + " saved searches of the test user.");
+        } catch (UncheckedIOException ex) {
+            if (!(ex.getCause() instanceof ApiStatusException)
+                    || !((ApiStatusException) ex.getCause()).isApiMissing()) {
+                throw ex;
+            }
+            Reporter.log("There is no saved searches api, delete the saved searches of the test user by hand: "
+                    + ex.getMessage());
+        }
+    }
+
+    /*
+     * Saves a search for plots of land and checks the success modal. Needs a
+     * logged in user.
+     */
+    private void saveLandForSaleSearch() {
+        ResultsPage resultsPage = LAND_SALE_RESULTS.reach(getDriver()).
                 clickFiltersButton().
                 selectPlotLandFromFilters().
                 clickSubmitFiltersButton().
-                clickSaveSearchButton();
-
-        //We should be logged out, so the login popup should have appeared.
-        LoginPage loginPage = resultsPage.clickLoginButton();
-
-        //Perform a proper login using correct credentials. May throw an exception
-        //if the test user instance is not created correctly.
-        TestUser testUser = TestUser.createTestUser();
+                clickSaveSearchButton().
+                clickSubmitSaveSearchButton();
 
-        loginPage.setEmail(testUser.getUsername()).setPassword(testUser.getPassword()).clickLoginButton();
-
-        //we are logged in properly now. We should also be at the Results page,
-        //so try to save our search filters again.
-        resultsPage.clickSaveSearchButton().clickSubmitSaveSearchButton();
-        
         /*
         The filter has been saved, check that the proper success image and
         text are present.
@@ -172,22 +211,17 @@ public class SelectLandForSaleApplyPlotFilterSaveSearch {
      * Logs out the current user session
      */
     private void logoutIfNecessary() {
-        BasePOM basePom = new BasePOM(driver);
+        BasePOM basePom = new BasePOM(getDriver());
         if (basePom.isUserLoggedIn()) {
             basePom.logout();
         }
     }
 
-    @AfterClass
-    public void close() {
-        //We close the driver
-        driver.quit();
-    }
-
     /*
     * Closes the cookies banner if it's present on the page
      */
     public void closeCookiesBannerIfPresent() {
+        WebDriver driver = getDriver();
         if (driver.findElements(By.cssSelector(".btn-disclaimer-ok")).size() > 0) {
             driver.findElement(By.cssSelector(".btn-disclaimer-ok")).click();
         }
@@ -198,6 +232,7 @@ public class SelectLandForSaleApplyPlotFilterSaveSearch {
      * If no pop-up is present then it does nothing.
      */
     public void saveSearchDoNothingIfAlreadySaved() {
+        WebDriver driver = getDriver();
         if (driver.findElements(By.cssSelector("input.button-property")).size() > 0) {
             //Save the search
             driver.findElement(By.cssSelector("input.button-property")).click();
@@ -1,8 +1,9 @@
 package gr.xe.selenium.qaChallenge;
 
+import gr.xe.selenium.driver.BrowserFactory;
+import gr.xe.selenium.utilities.SiteUrls;
 import org.openqa.selenium.By;
 import org.openqa.selenium.WebDriver;
-import org.openqa.selenium.chrome.ChromeDriver;
 import org.testng.annotations.Test;
 
 public class TestExample {
@@ -12,24 +13,19 @@ public class TestExample {
     * */
     @Test(priority = 0, description = "Visit gr.xe.gr and click on the jobs tab")
     public void visitXeClickJobsTab() {
-        //We get the current working directory - the project directory
-        String path = System.getProperty("user.dir");
-        //Νο we get the web driver executable path under the above directory
-        String chromeDriverPath = path + "/src/main/resources/chromedriver.exe";
-        //For this example chrome 93.0.4577.63 for windows has been used
-        //If you have a later version you have to replace the chrome executable with the latest one
-        //Under the above directory there also is the executable for linux environments
-        //Feel free to add and use any executable for any browser or environment that suits you
-        //After we have built the web driver path we load it to the corresponding property
-        System.setProperty("webdriver.chrome.driver", chromeDriverPath);
-        //We start the chromedriver
-        WebDriver driver = new ChromeDriver();
-        //We visit gr.xe.gr
-        driver.navigate().to("https://www.xe.gr/");
-        //We click on the tab we want
-        driver.findElement(By.cssSelector("#jobs-tab")).click();
-        //We close the driver
-        driver.quit();
+        //We start the browser of -Dbrowser.type, the factory finds the driver executable for our platform
+        //Drop chromedriver (chromedriver.exe on windows) or geckodriver under src/main/resources,
+        //put it on the PATH or point -Dbrowser.driverPath to it
+        WebDriver driver = BrowserFactory.createBrowser();
+        try {
+            //We visit gr.xe.gr, or whichever site -Dxe.baseUrl or the stand-in server points us to
+            driver.navigate().to(SiteUrls.getBaseUrl());
+            //We click on the tab we want
+            driver.findElement(By.cssSelector("#jobs-tab")).click();
+        } finally {
+            //We close the driver even when the tab could not be clicked
+            driver.quit();
+        }
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,71 @@
+package gr.xe.selenium.scheduling;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import org.testng.IMethodInstance;
+import org.testng.IMethodInterceptor;
+import org.testng.ITestContext;
+import org.testng.ITestNGMethod;
+import org.testng.Reporter;
+
+/**
+ * Orders the test methods so that, among the methods of the same
+ * <code>priority</code>, the ones that took the longest in the previous runs
+ * (see {@link TimingHistory}) start first. With parallel workers this keeps a
+ * slow test from starting last and holding up the end of the suite. Methods we
+ * have never timed are assumed to take the average time.
+ *
+ * <p>
+ * Methods that depend on other methods or groups keep their place, so TestNG
+ * can still honour the dependencies. Run with
+ * <code>-Dtimings.ordering=false</code> to keep TestNG's own order.
+ *
+ * @author pkalogerop
+ */
+public class LongestFirstMethodInterceptor implements IMethodInterceptor {
+
+    @Override
+    public List<IMethodInstance> intercept(List<IMethodInstance> methods, ITestContext context) {
+        if (!Boolean.parseBoolean(System.getProperty("timings.ordering", "true")) || methods.size() < 2) {
+            return methods;
+        }
+
+        TimingHistory timingHistory = TimingHistory.load();
+        long defaultDuration = timingHistory.getAverageDurationMillis();
+
+        List<IMethodInstance> movable = new ArrayList<>();
+        for (IMethodInstance method : methods) {
+            if (!hasDependencies(method.getMethod())) {
+                movable.add(method);
+            }
+        }
+        //A stable sort, so equal methods keep TestNG's order.
+        movable.sort(Comparator
+                .comparingInt((IMethodInstance method) -> method.getMethod().getPriority())
+                .thenComparing(Comparator.comparingLong(
+                        (IMethodInstance method) -> estimateOf(method, timingHistory, defaultDuration)).reversed()));
+
+        //Put the movable methods, in their new order, in the places of the movable methods.
+        List<IMethodInstance> ordered = new ArrayList<>(methods.size());
+        int next = 0;
+        StringBuilder order = new StringBuilder("Test order for " + context.getName() + ":");
+        for (IMethodInstance method : methods) {
+            IMethodInstance chosen = hasDependencies(method.getMethod()) ? method : movable.get(next++);
+            ordered.add(chosen);
+            order.append("\n  ").append(TimingHistoryListener.keyOf(chosen.getMethod()))
+                    .append(" (~").append(estimateOf(chosen, timingHistory, defaultDuration)).append(" ms)");
+        }
+        Reporter.log(order.toString());
+        return ordered;
+    }
+
+    private static boolean hasDependencies(ITestNGMethod method) {
+        return method.getMethodsDependedUpon().length > 0 || method.getGroupsDependedUpon().length > 0;
+    }
+
+    private static long estimateOf(IMethodInstance method, TimingHistory timingHistory, long defaultDuration) {
+        Long duration = timingHistory.getDurationMillis(TimingHistoryListener.keyOf(method.getMethod()));
+        return duration == null ? defaultDuration : duration;
+    }
+}
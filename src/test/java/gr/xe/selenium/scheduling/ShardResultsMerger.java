@@ -0,0 +1,258 @@
+package gr.xe.selenium.scheduling;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * Combines the reports of the shards of a run (see {@link ShardSelector}) into
+ * one <code>testng-results.xml</code> and one <code>testng-failed.xml</code>,
+ * as if the whole suite had run at once, and records the durations of the
+ * run in the {@link TimingHistory}. Run it after the last shard with:
+ * <code>mvn -P merge-shards test-compile exec:java</code>
+ *
+ * <p>
+ * The arguments are the directory of the shard reports
+ * (<code>target/shards</code> by default, with one <code>shard-N</code>
+ * directory per shard) and the directory of the merged reports
+ * (<code>target/surefire-reports</code> by default).
+ *
+ * <p>
+ * Nothing is merged unless every shard left its report and its
+ * {@link ShardSelector#PLAN_FILE plan}, all the plans agree, and every class
+ * of the plan ran in exactly one shard. Otherwise the merged report would
+ * quietly pass with classes missing, or count some of them twice.
+ *
+ * @author pkalogerop
+ */
+public final class ShardResultsMerger {
+
+    private static final String RESULTS_FILE = "testng-results.xml";
+    private static final String FAILED_FILE = "testng-failed.xml";
+
+    //Elements that the shards have in common, we merge their children instead of repeating them.
+    private static final Set<String> RESULTS_MERGED_ELEMENTS = new HashSet<>(Arrays.asList(
+            "reporter-output", "suite", "groups", "group", "test", "class"));
+    private static final Set<String> FAILED_MERGED_ELEMENTS = new HashSet<>(Arrays.asList(
+            "suite", "listeners", "test", "classes", "class", "methods"));
+    private static final List<String> RESULTS_COUNTERS = Arrays.asList(
+            "ignored", "total", "passed", "failed", "skipped");
+
+    private ShardResultsMerger() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        File shardsDir = new File(args.length > 0 ? args[0] : "target/shards");
+        File outputDir = new File(args.length > 1 ? args[1] : "target/surefire-reports");
+
+        List<File> resultsFiles = new ArrayList<>();
+        List<File> failedFiles = new ArrayList<>();
+        File[] shardDirs = shardsDir.listFiles(File::isDirectory);
+        if (shardDirs != null) {
+            Arrays.sort(shardDirs);
+            for (File shardDir : shardDirs) {
+                addIfExists(new File(shardDir, RESULTS_FILE), resultsFiles);
+                addIfExists(new File(shardDir, FAILED_FILE), failedFiles);
+            }
+        }
+        if (resultsFiles.isEmpty()) {
+            throw new IllegalStateException("There are no shard reports in " + shardsDir.getAbsolutePath());
+        }
+        checkEveryClassRanOnce(shardDirs);
+        outputDir.mkdirs();
+
+        File mergedResults = new File(outputDir, RESULTS_FILE);
+        Document results = merge(resultsFiles, RESULTS_MERGED_ELEMENTS, RESULTS_COUNTERS);
+        write(results, mergedResults);
+
+        File mergedFailed = new File(outputDir, FAILED_FILE);
+        if (failedFiles.isEmpty()) {
+            //A failed file of an older run would send us after failures that are gone.
+            mergedFailed.delete();
+        } else {
+            write(merge(failedFiles, FAILED_MERGED_ELEMENTS, new ArrayList<>()), mergedFailed);
+        }
+
+        TimingHistory timingHistory = TimingHistory.load();
+        timingHistory.recordAll(mergedResults);
+        timingHistory.save();
+
+        Element root = results.getDocumentElement();
+        System.out.println("Merged " + resultsFiles.size() + " shards into " + outputDir.getAbsolutePath()
+                + ": total " + root.getAttribute("total") + ", passed " + root.getAttribute("passed")
+                + ", failed " + root.getAttribute("failed") + ", skipped " + root.getAttribute("skipped"));
+    }
+
+    private static void checkEveryClassRanOnce(File[] shardDirs) throws Exception {
+        List<String> problems = new ArrayList<>();
+        Properties plan = null;
+        Map<String, String> shardOfClass = new HashMap<>();
+        for (File shardDir : shardDirs) {
+            File planFile = new File(shardDir, ShardSelector.PLAN_FILE);
+            if (!planFile.isFile()) {
+                problems.add(shardDir.getName() + " has no " + ShardSelector.PLAN_FILE);
+            } else {
+                Properties shardPlan = new Properties();
+                try (InputStream input = new FileInputStream(planFile)) {
+                    shardPlan.load(input);
+                }
+                if (plan == null) {
+                    plan = shardPlan;
+                } else if (!plan.equals(shardPlan)) {
+                    problems.add(shardDir.getName() + " split the suite differently, did the shards see the"
+                            + " same timing history?");
+                }
+            }
+
+            File resultsFile = new File(shardDir, RESULTS_FILE);
+            if (!resultsFile.isFile()) {
+                problems.add(shardDir.getName() + " has no " + RESULTS_FILE);
+                continue;
+            }
+            for (String testClass : testClassesOf(resultsFile)) {
+                String otherShard = shardOfClass.put(testClass, shardDir.getName());
+                if (otherShard != null) {
+                    problems.add(testClass + " ran in both " + otherShard + " and " + shardDir.getName());
+                }
+            }
+        }
+        if (plan != null) {
+            for (String testClass : plan.stringPropertyNames()) {
+                if (!shardOfClass.containsKey(testClass)) {
+                    problems.add(testClass + " did not run in any shard, its plan says shard "
+                            + plan.getProperty(testClass));
+                }
+            }
+        }
+        if (!problems.isEmpty()) {
+            throw new IllegalStateException("Will not merge the shard reports:\n  " + String.join("\n  ", problems));
+        }
+    }
+
+    /*
+     * The <test name>/<class name> of every class that ran a test method.
+     * Suite level configuration methods show up under a class in every shard,
+     * so they do not count.
+     */
+    private static Set<String> testClassesOf(File resultsFile) throws Exception {
+        Set<String> testClasses = new HashSet<>();
+        NodeList testMethods = parse(resultsFile).getElementsByTagName("test-method");
+        for (int i = 0; i < testMethods.getLength(); i++) {
+            Element testMethod = (Element) testMethods.item(i);
+            Node testClass = testMethod.getParentNode();
+            Node test = testClass == null ? null : testClass.getParentNode();
+            if ("true".equals(testMethod.getAttribute("is-config"))
+                    || !(testClass instanceof Element) || !(test instanceof Element)) {
+                continue;
+            }
+            testClasses.add(((Element) test).getAttribute("name") + "/" + ((Element) testClass).getAttribute("name"));
+        }
+        return testClasses;
+    }
+
+    private static void addIfExists(File file, List<File> files) {
+        if (file.isFile()) {
+            files.add(file);
+        }
+    }
+
+    private static Document merge(List<File> files, Set<String> mergedElements, List<String> counters)
+            throws Exception {
+        Document merged = parse(files.get(0));
+        for (File file : files.subList(1, files.size())) {
+            Element root = parse(file).getDocumentElement();
+            for (String counter : counters) {
+                addCounter(merged.getDocumentElement(), root, counter);
+            }
+            mergeChildren(merged.getDocumentElement(), root, mergedElements);
+        }
+        return merged;
+    }
+
+    /*
+     * Children that both elements have, by tag and name, are merged
+     * recursively, anything else is copied unless it is already there.
+     */
+    private static void mergeChildren(Element target, Element source, Set<String> mergedElements) {
+        Document document = target.getOwnerDocument();
+        NodeList children = source.getChildNodes();
+        for (int i = 0; i < children.getLength(); i++) {
+            if (!(children.item(i) instanceof Element)) {
+                continue;
+            }
+            Element child = (Element) children.item(i);
+            Element existing = mergedElements.contains(child.getTagName()) ? findChild(target, child) : null;
+            if (existing != null) {
+                //The shards ran side by side, so the merged run took as long as the slowest one.
+                if (child.hasAttribute("duration-ms") && existing.hasAttribute("duration-ms")) {
+                    existing.setAttribute("duration-ms", Long.toString(Math.max(
+                            Long.parseLong(existing.getAttribute("duration-ms")),
+                            Long.parseLong(child.getAttribute("duration-ms")))));
+                }
+                mergeChildren(existing, child, mergedElements);
+            } else if (!containsEqualChild(target, child)) {
+                target.appendChild(document.importNode(child, true));
+            }
+        }
+    }
+
+    private static Element findChild(Element parent, Element like) {
+        for (Node node = parent.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node instanceof Element && ((Element) node).getTagName().equals(like.getTagName())
+                    && ((Element) node).getAttribute("name").equals(like.getAttribute("name"))) {
+                return (Element) node;
+            }
+        }
+        return null;
+    }
+
+    private static boolean containsEqualChild(Element parent, Element like) {
+        for (Node node = parent.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node.isEqualNode(like)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void addCounter(Element target, Element source, String counter) {
+        if (source.hasAttribute(counter)) {
+            long current = target.hasAttribute(counter) ? Long.parseLong(target.getAttribute(counter)) : 0;
+            target.setAttribute(counter, Long.toString(current + Long.parseLong(source.getAttribute(counter))));
+        }
+    }
+
+    private static Document parse(File file) throws Exception {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        //testng-failed.xml points to the TestNG DTD, we do not want to download it.
+        factory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+        return factory.newDocumentBuilder().parse(file);
+    }
+
+    private static void write(Document document, File file) throws Exception {
+        Transformer transformer = TransformerFactory.newInstance().newTransformer();
+        transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
+        if (document.getDoctype() != null && document.getDoctype().getSystemId() != null) {
+            transformer.setOutputProperty(OutputKeys.DOCTYPE_SYSTEM, document.getDoctype().getSystemId());
+        }
+        transformer.transform(new DOMSource(document), new StreamResult(file));
+    }
+}
@@ -0,0 +1,169 @@
+package gr.xe.selenium.scheduling;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import org.testng.IMethodInstance;
+import org.testng.IMethodInterceptor;
+import org.testng.ITestContext;
+import org.testng.Reporter;
+
+/**
+ * Keeps only the test classes of one shard of the suite, so that the suite
+ * can be split across several surefire runs or machines with
+ * <code>-Dshard.index=0 -Dshard.total=3</code> and so on. The shards are
+ * balanced by the durations of the {@link TimingHistory}: the most expensive
+ * class goes to the least loaded shard, until every class has a shard.
+ *
+ * <p>
+ * We split whole classes, so that the configuration methods of a class run
+ * once and the methods that depend on each other stay together. Every shard
+ * computes the same partition on its own, as long as they all see the same
+ * timing history (see <code>-Dtimings.file</code>). Each shard writes the
+ * whole partition to the {@link #PLAN_FILE} of its reports, so that
+ * {@link ShardResultsMerger} can check that every class ran exactly once.
+ * Without <code>shard.total</code> every class runs.
+ *
+ * @author pkalogerop
+ */
+public class ShardSelector implements IMethodInterceptor {
+
+    /**
+     * The file, in <code>-Dmetrics.reportsDir</code>, where each shard writes
+     * the shard of every class as <code>&lt;test name&gt;/&lt;class
+     * name&gt;=&lt;shard&gt;</code>.
+     */
+    static final String PLAN_FILE = "shard-plan.properties";
+
+    //Whether this run has written its plan yet, the plan of an older run must not survive.
+    private static boolean planStarted;
+
+    /**
+     * @return <code>true</code> if this run is one shard of the suite.
+     */
+    public static boolean isSharded() {
+        return getShardTotal() > 1;
+    }
+
+    /**
+     * @return the number of shards that the suite is split into, 1 by default.
+     */
+    public static int getShardTotal() {
+        return Integer.getInteger("shard.total", 1);
+    }
+
+    /**
+     * @return the shard of this run, starting from 0.
+     */
+    public static int getShardIndex() {
+        return Integer.getInteger("shard.index", 0);
+    }
+
+    @Override
+    public List<IMethodInstance> intercept(List<IMethodInstance> methods, ITestContext context) {
+        int shardTotal = getShardTotal();
+        int shardIndex = getShardIndex();
+        if (shardTotal <= 1) {
+            return methods;
+        }
+        if (shardIndex < 0 || shardIndex >= shardTotal) {
+            throw new IllegalArgumentException("shard.index must be between 0 and " + (shardTotal - 1)
+                    + ", not " + shardIndex);
+        }
+
+        //What each class costs: the durations of its methods, or the average if we have never timed one.
+        TimingHistory timingHistory = TimingHistory.load();
+        //Without any history every method counts the same.
+        long defaultDuration = Math.max(1, timingHistory.getAverageDurationMillis());
+        Map<String, Long> classCosts = new HashMap<>();
+        for (IMethodInstance method : methods) {
+            Long duration = timingHistory.getDurationMillis(TimingHistoryListener.keyOf(method.getMethod()));
+            classCosts.merge(method.getMethod().getRealClass().getName(),
+                    duration == null ? defaultDuration : Math.max(1, duration), Long::sum);
+        }
+        Map<String, Integer> shards = partition(classCosts, shardTotal);
+
+        List<IMethodInstance> selected = new ArrayList<>();
+        for (IMethodInstance method : methods) {
+            if (shards.get(method.getMethod().getRealClass().getName()) == shardIndex) {
+                selected.add(method);
+            }
+        }
+
+        StringBuilder report = new StringBuilder("Shard " + shardIndex + " of " + shardTotal + " for "
+                + context.getName() + ":");
+        for (Map.Entry<String, Integer> entry : shards.entrySet()) {
+            report.append("\n  ").append(entry.getKey()).append(" (~").append(classCosts.get(entry.getKey()))
+                    .append(" ms) -> shard ").append(entry.getValue());
+        }
+        Reporter.log(report.toString(), true);
+        writePlan(context.getName(), shards);
+        return selected;
+    }
+
+    /*
+     * Called once per <test> of the suite, so we add to the plan of this run.
+     */
+    private static synchronized void writePlan(String testName, Map<String, Integer> shards) {
+        File planFile = new File(System.getProperty("metrics.reportsDir", "target/surefire-reports"), PLAN_FILE);
+        Properties plan = new Properties();
+        if (planStarted && planFile.isFile()) {
+            try (InputStream input = new FileInputStream(planFile)) {
+                plan.load(input);
+            } catch (IOException ex) {
+                throw new UncheckedIOException("Could not read the shard plan " + planFile, ex);
+            }
+        }
+        for (Map.Entry<String, Integer> entry : shards.entrySet()) {
+            plan.setProperty(testName + "/" + entry.getKey(), Integer.toString(entry.getValue()));
+        }
+        planFile.getAbsoluteFile().getParentFile().mkdirs();
+        try (OutputStream output = new FileOutputStream(planFile)) {
+            plan.store(output, "Shard of every test class, see ShardSelector");
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not write the shard plan " + planFile, ex);
+        }
+        planStarted = true;
+    }
+
+    /**
+     * Split the given classes into shards of about the same cost, longest
+     * first. Classes of the same cost are taken by name, so the result does
+     * not depend on the order of the map.
+     *
+     * @param classCosts the estimated duration of each class.
+     * @param shardTotal the number of shards.
+     * @return the shard of each class, starting from 0, with the most
+     * expensive classes first.
+     */
+    static Map<String, Integer> partition(Map<String, Long> classCosts, int shardTotal) {
+        List<String> classNames = new ArrayList<>(classCosts.keySet());
+        Collections.sort(classNames);
+        classNames.sort((first, second) -> Long.compare(classCosts.get(second), classCosts.get(first)));
+
+        long[] shardCosts = new long[shardTotal];
+        Map<String, Integer> shards = new LinkedHashMap<>();
+        for (String className : classNames) {
+            int leastLoaded = 0;
+            for (int shard = 1; shard < shardTotal; shard++) {
+                if (shardCosts[shard] < shardCosts[leastLoaded]) {
+                    leastLoaded = shard;
+                }
+            }
+            shardCosts[leastLoaded] += classCosts.get(className);
+            shards.put(className, leastLoaded);
+        }
+        return shards;
+    }
+}
@@ -0,0 +1,192 @@
+package gr.xe.selenium.scheduling;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import javax.xml.parsers.DocumentBuilderFactory;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * Remembers how long each test method took in the previous runs, so that we
+ * can start the slowest ones first. The history lives in a local file
+ * (<code>-Dtimings.file</code>, <code>.test-timings.properties</code> in the
+ * project directory by default) that is not committed, because durations
+ * depend on the machine. The first time, it is seeded from the
+ * <code>testng-results.xml</code> of the last full or merged run in
+ * <code>target/surefire-reports</code>, if there is one. The seed does not
+ * follow <code>-Dmetrics.reportsDir</code>, which differs from shard to
+ * shard, because every shard must start from the same durations.
+ *
+ * <p>
+ * Methods are keyed by their class and name, such as
+ * <code>gr.xe.selenium.qaChallenge.XESimpleTestSuite.checkPriceFiltersTest</code>.
+ * The duration of a method with a data provider is the total of all its
+ * invocations. New durations are averaged with the old ones, so one slow run
+ * does not reorder the whole suite.
+ *
+ * @author pkalogerop
+ */
+public class TimingHistory {
+
+    private static final double NEW_DURATION_WEIGHT = 0.5;
+
+    private final File historyFile;
+    private final Map<String, Long> durations = new HashMap<>();
+
+    /**
+     * @param historyFile the file that we read the history from and save it to.
+     */
+    public TimingHistory(File historyFile) {
+        this.historyFile = historyFile;
+    }
+
+    /**
+     * @return the <code>TimingHistory</code> of the configured file, loaded
+     * and, if the file does not exist yet, seeded from the last surefire run.
+     */
+    public static TimingHistory load() {
+        String userDir = System.getProperty("user.dir");
+        TimingHistory timingHistory = new TimingHistory(new File(
+                System.getProperty("timings.file", userDir + "/.test-timings.properties")));
+        if (timingHistory.historyFile.isFile()) {
+            timingHistory.readHistoryFile();
+        } else {
+            timingHistory.seedFrom(new File(userDir + "/target/surefire-reports", "testng-results.xml"));
+        }
+        return timingHistory;
+    }
+
+    /**
+     * @param methodKey the class and name of the method.
+     * @return how long the method usually takes in milliseconds, or
+     * <code>null</code> if we have never seen it.
+     */
+    public synchronized Long getDurationMillis(String methodKey) {
+        return durations.get(methodKey);
+    }
+
+    /**
+     * @return how long the methods that we know take on average, in
+     * milliseconds, or <code>0</code> if we know none.
+     */
+    public synchronized long getAverageDurationMillis() {
+        if (durations.isEmpty()) {
+            return 0;
+        }
+        long total = 0;
+        for (long duration : durations.values()) {
+            total += duration;
+        }
+        return total / durations.size();
+    }
+
+    /**
+     * Record how long a method took in this run.
+     *
+     * @param methodKey the class and name of the method.
+     * @param durationMillis the duration of the method in this run.
+     */
+    public synchronized void record(String methodKey, long durationMillis) {
+        Long previous = durations.get(methodKey);
+        durations.put(methodKey, previous == null ? durationMillis
+                : Math.round(previous * (1 - NEW_DURATION_WEIGHT) + durationMillis * NEW_DURATION_WEIGHT));
+    }
+
+    /**
+     * Record the durations of a whole run, for instance of the shards that
+     * {@link ShardResultsMerger} has merged.
+     *
+     * @param testngResults the <code>testng-results.xml</code> of the run.
+     */
+    public synchronized void recordAll(File testngResults) {
+        for (Map.Entry<String, Long> entry : readDurations(testngResults).entrySet()) {
+            record(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Write the history to its file.
+     */
+    public synchronized void save() {
+        Properties properties = new Properties();
+        for (Map.Entry<String, Long> entry : durations.entrySet()) {
+            properties.setProperty(entry.getKey(), Long.toString(entry.getValue()));
+        }
+        File parent = historyFile.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        try (OutputStream output = new FileOutputStream(historyFile)) {
+            properties.store(output, "Test durations in milliseconds, see TimingHistory");
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not save the timing history to " + historyFile, ex);
+        }
+    }
+
+    private void readHistoryFile() {
+        Properties properties = new Properties();
+        try (InputStream input = new FileInputStream(historyFile)) {
+            properties.load(input);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not read the timing history from " + historyFile, ex);
+        }
+        for (String methodKey : properties.stringPropertyNames()) {
+            try {
+                durations.put(methodKey, Long.parseLong(properties.getProperty(methodKey).trim()));
+            } catch (NumberFormatException ex) {
+                //A hand edited line, ignore it.
+            }
+        }
+    }
+
+    private void seedFrom(File testngResults) {
+        durations.putAll(readDurations(testngResults));
+    }
+
+    /*
+     * testng-results.xml has a <class name="..."> element with a <test-method
+     * name="..." duration-ms="..."> for every invocation, configuration
+     * methods included.
+     */
+    private static Map<String, Long> readDurations(File testngResults) {
+        Map<String, Long> totals = new HashMap<>();
+        if (!testngResults.isFile()) {
+            return totals;
+        }
+        Document document;
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+            document = factory.newDocumentBuilder().parse(testngResults);
+        } catch (Exception ex) {
+            //No history is better than no tests.
+            return totals;
+        }
+
+        NodeList testMethods = document.getElementsByTagName("test-method");
+        for (int i = 0; i < testMethods.getLength(); i++) {
+            Element testMethod = (Element) testMethods.item(i);
+            Node parent = testMethod.getParentNode();
+            if ("true".equals(testMethod.getAttribute("is-config")) || !(parent instanceof Element)) {
+                continue;
+            }
+            try {
+                String methodKey = ((Element) parent).getAttribute("name") + "." + testMethod.getAttribute("name");
+                totals.merge(methodKey, Long.parseLong(testMethod.getAttribute("duration-ms")), Long::sum);
+            } catch (NumberFormatException ex) {
+                //No duration for this one.
+            }
+        }
+        return totals;
+    }
+}
@@ -0,0 +1,63 @@
+package gr.xe.selenium.scheduling;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+import org.testng.ITestListener;
+import org.testng.ITestNGMethod;
+import org.testng.ITestResult;
+
+/**
+ * Records how long every test method took in this run into the
+ * {@link TimingHistory}, for {@link LongestFirstMethodInterceptor} to use in
+ * the next run. Skipped methods are not recorded, their duration means
+ * nothing.
+ *
+ * @author pkalogerop
+ */
+public class TimingHistoryListener implements ISuiteListener, ITestListener {
+
+    private final Map<String, Long> runDurations = new ConcurrentHashMap<>();
+
+    @Override
+    public void onStart(ISuite suite) {
+        runDurations.clear();
+    }
+
+    @Override
+    public void onTestSuccess(ITestResult result) {
+        record(result);
+    }
+
+    @Override
+    public void onTestFailure(ITestResult result) {
+        record(result);
+    }
+
+    @Override
+    public void onFinish(ISuite suite) {
+        //Shards would overwrite each other's history, ShardResultsMerger records the merged run instead.
+        if (runDurations.isEmpty() || ShardSelector.isSharded()) {
+            return;
+        }
+        TimingHistory timingHistory = TimingHistory.load();
+        for (Map.Entry<String, Long> entry : runDurations.entrySet()) {
+            timingHistory.record(entry.getKey(), entry.getValue());
+        }
+        timingHistory.save();
+    }
+
+    /**
+     * @param method a test method.
+     * @return the key of the method in the <code>TimingHistory</code>.
+     */
+    static String keyOf(ITestNGMethod method) {
+        return method.getRealClass().getName() + "." + method.getMethodName();
+    }
+
+    private void record(ITestResult result) {
+        //The invocations of a data provider add up.
+        runDurations.merge(keyOf(result.getMethod()), result.getEndMillis() - result.getStartMillis(), Long::sum);
+    }
+}
@@ -0,0 +1,208 @@
+package gr.xe.selenium.session;
+
+import gr.xe.selenium.pom.BasePOM;
+import gr.xe.selenium.pom.LoginPage;
+import gr.xe.selenium.utilities.TestUser;
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import org.openqa.selenium.Cookie;
+import org.openqa.selenium.InvalidCookieDomainException;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * Logging in through the UI costs several waits and a full redirect, so we do
+ * it once per <code>TestUser</code>, keep the cookies and local storage of the
+ * logged in session and inject them into any other driver that needs to be
+ * logged in as the same user.
+ *
+ * <p>
+ * A cached session is thrown away and the user logs in again after
+ * <code>auth.sessionTtlMinutes</code> (default 30), as soon as one of its
+ * authentication cookies expires, when any driver logs out of it, or when the
+ * site does not accept it after an injection.
+ *
+ * @author pkalogerop
+ */
+public class AuthSessionCache {
+
+    private static final AuthSessionCache INSTANCE = new AuthSessionCache(
+            Duration.ofMinutes(Integer.getInteger("auth.sessionTtlMinutes", 30)));
+
+    private static final String READ_LOCAL_STORAGE_SCRIPT
+            = "var items = {};"
+            + "for (var i = 0; i < window.localStorage.length; i++) {"
+            + "  var key = window.localStorage.key(i);"
+            + "  items[key] = window.localStorage.getItem(key);"
+            + "}"
+            + "return items;";
+
+    private static final String WRITE_LOCAL_STORAGE_SCRIPT
+            = "for (var key in arguments[0]) {"
+            + "  window.localStorage.setItem(key, arguments[0][key]);"
+            + "}";
+
+    private final Duration timeToLive;
+    private final Map<String, CachedSession> sessions = new ConcurrentHashMap<>();
+    private final Map<String, Object> userLocks = new ConcurrentHashMap<>();
+    //Weak keys, so that we do not keep quit drivers alive.
+    private final Map<WebDriver, TestUser> loggedInUsers
+            = Collections.synchronizedMap(new WeakHashMap<WebDriver, TestUser>());
+
+    public AuthSessionCache(Duration timeToLive) {
+        this.timeToLive = timeToLive;
+    }
+
+    /**
+     * Get the cache that is shared by all our tests.
+     *
+     * @return the JVM wide <code>AuthSessionCache</code>.
+     */
+    public static AuthSessionCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Make sure that the given driver is logged in as the given user. The
+     * first time (or once the cached session has expired) we log in through
+     * the UI, every other time we inject the cached cookies and check once
+     * that the site accepts them. Note that the driver will be left on a page
+     * of the xe.gr account site, so the caller should navigate to the page it
+     * needs afterwards.
+     *
+     * @param webDriver the <code>WebDriver</code> that we want logged in.
+     * @param testUser the user we want to log in as.
+     */
+    public void logIn(WebDriver webDriver, TestUser testUser) {
+        String username = testUser.getUsername();
+
+        //Only one thread may log in as the same user, the rest wait for its session.
+        synchronized (userLocks.computeIfAbsent(username, key -> new Object())) {
+            CachedSession session = sessions.get(username);
+            if (session != null && !session.isExpired() && inject(webDriver, session)) {
+                loggedInUsers.put(webDriver, testUser);
+                return;
+            }
+
+            sessions.put(username, logInThroughUi(webDriver, testUser));
+            loggedInUsers.put(webDriver, testUser);
+        }
+    }
+
+    /**
+     * Record that the given driver has logged out. Logging out ends the
+     * session on the site, for every driver that shares its cookies, so the
+     * cached session of its user is dropped too.
+     *
+     * @param webDriver the <code>WebDriver</code> that logged out.
+     */
+    public void loggedOut(WebDriver webDriver) {
+        TestUser testUser = loggedInUsers.remove(webDriver);
+        if (testUser != null) {
+            invalidate(testUser);
+        }
+    }
+
+    /**
+     * Forget the cached session of the given user, for instance because the
+     * site has logged it out. The next {@link #logIn(WebDriver, TestUser) logIn}
+     * will go through the UI again.
+     *
+     * @param testUser the user whose session we want to drop.
+     */
+    public void invalidate(TestUser testUser) {
+        sessions.remove(testUser.getUsername());
+    }
+
+    private CachedSession logInThroughUi(WebDriver webDriver, TestUser testUser) {
+        LoginPage loginPage = new LoginPage(webDriver).goTo();
+        loginPage.setEmail(testUser.getUsername()).
+                setPassword(testUser.getPassword());
+        Set<Cookie> cookiesBeforeLogin = webDriver.manage().getCookies();
+        loginPage.clickLoginButton();
+        loginPage.waitForLoginToComplete();
+
+        Set<Cookie> cookies = new HashSet<>(webDriver.manage().getCookies());
+        //Whatever cookies the login gave us are the ones that prove we are logged in.
+        SessionStateTracker.getInstance().learnAuthCookies(cookiesBeforeLogin, cookies);
+        @SuppressWarnings("unchecked")
+        Map<String, Object> localStorage = (Map<String, Object>) ((JavascriptExecutor) webDriver)
+                .executeScript(READ_LOCAL_STORAGE_SCRIPT);
+
+        URI landingPage = URI.create(webDriver.getCurrentUrl());
+        String origin = landingPage.getScheme() + "://" + landingPage.getAuthority();
+
+        return new CachedSession(origin, cookies,
+                localStorage == null ? Collections.<String, Object>emptyMap() : localStorage,
+                expiryOf(cookies));
+    }
+
+    /*
+     * Returns false if the site does not take the injected session, for
+     * instance because it has expired on the server before its cookies did.
+     */
+    private boolean inject(WebDriver webDriver, CachedSession session) {
+        //Cookies and local storage can only be set for the site we are on, so go
+        //to the site where we captured them first. Any page will do, so we pick
+        //the lightest one.
+        webDriver.get(session.origin + "/robots.txt");
+
+        for (Cookie cookie : session.cookies) {
+            try {
+                webDriver.manage().addCookie(cookie);
+            } catch (InvalidCookieDomainException ex) {
+                //A cookie of another subdomain, the browser will not take it from here.
+            }
+        }
+        if (!session.localStorage.isEmpty()) {
+            ((JavascriptExecutor) webDriver).executeScript(WRITE_LOCAL_STORAGE_SCRIPT, session.localStorage);
+        }
+        //Records the answer in the SessionStateTracker too.
+        return new BasePOM(webDriver).isUserLoggedInOnSite();
+    }
+
+    private Instant expiryOf(Set<Cookie> cookies) {
+        Instant expiry = Instant.now().plus(timeToLive);
+        SessionStateTracker sessionStateTracker = SessionStateTracker.getInstance();
+        for (Cookie cookie : cookies) {
+            //Consent or tracking cookies may expire any time, they do not end the login.
+            if (!sessionStateTracker.isAuthCookie(cookie)) {
+                continue;
+            }
+            Date cookieExpiry = cookie.getExpiry();
+            //Session cookies have no expiry, they live as long as our TTL.
+            if (cookieExpiry != null && cookieExpiry.toInstant().isBefore(expiry)) {
+                expiry = cookieExpiry.toInstant();
+            }
+        }
+        return expiry;
+    }
+
+    private static final class CachedSession {
+
+        private final String origin;
+        private final Set<Cookie> cookies;
+        private final Map<String, Object> localStorage;
+        private final Instant expiry;
+
+        private CachedSession(String origin, Set<Cookie> cookies, Map<String, Object> localStorage, Instant expiry) {
+            this.origin = origin;
+            this.cookies = Collections.unmodifiableSet(cookies);
+            this.localStorage = Collections.unmodifiableMap(new HashMap<>(localStorage));
+            this.expiry = expiry;
+        }
+
+        private boolean isExpired() {
+            return !Instant.now().isBefore(expiry);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package gr.xe.selenium.session;
+
+/**
+ * This <code>Enum</code> contains the states that a browser session can be in
+ * regarding the xe.gr login, as far as the {@link SessionStateTracker} knows.
+ * @author pkalogerop
+ */
+public enum LoginStateEnum {
+
+    LOGGED_IN,
+    LOGGED_OUT,
+    /*
+     * We have submitted the login form but we have not seen where it took us.
+     */
+    LOGGING_IN,
+    /*
+     * We have no idea, we will have to look at the cookies or ask the site.
+     */
+    UNKNOWN;
+
+    /**
+     * @return <code>true</code> if this state tells for sure whether we are
+     * logged in or not.
+     */
+    public boolean isKnown() {
+        return this == LOGGED_IN || this == LOGGED_OUT;
+    }
+}
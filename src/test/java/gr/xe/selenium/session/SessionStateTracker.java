@@ -0,0 +1,242 @@
+package gr.xe.selenium.session;
+
+import gr.xe.selenium.utilities.SiteUrls;
+import java.net.URI;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import org.openqa.selenium.Cookie;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * Keeps track of whether each browser session is logged in to xe.gr, so that
+ * we do not have to navigate to a login protected page every time we want to
+ * know.
+ *
+ * <p>
+ * The state of a session is updated by the actions that change it (logging
+ * in, logging out, clearing the cookies). When it is not known, we look for
+ * the authentication cookies of the page we are on, which does not navigate
+ * anywhere. Only if that does not tell us either, the caller has to ask the
+ * site itself (see <code>BasePOM.isUserLoggedIn()</code>).
+ *
+ * <p>
+ * The names of the authentication cookies are learned in two steps. The
+ * session or HttpOnly cookies that appear when we log in through the UI are
+ * only candidates, since a login page also sets consent, analytics and other
+ * unrelated cookies. A candidate proves a login once we have seen it vanish
+ * on logout; a candidate that survives a logout is dropped. The names can
+ * also be given up front with the <code>auth.cookieNames</code> system
+ * property (comma separated), in which case they count for every page of our
+ * {@link SiteUrls sites}.
+ *
+ * @author pkalogerop
+ */
+public class SessionStateTracker {
+
+    private static final SessionStateTracker INSTANCE = new SessionStateTracker();
+
+    //Weak keys, so that we do not keep quit drivers alive.
+    private final Map<WebDriver, LoginStateEnum> states
+            = Collections.synchronizedMap(new WeakHashMap<WebDriver, LoginStateEnum>());
+
+    /*
+    Authentication cookie name -> the domain that the cookie is visible from.
+    Cookies that were configured up front have an empty domain, which stands
+    for all of our sites.
+     */
+    private final Map<String, String> authCookies = new ConcurrentHashMap<>();
+    //Cookies that appeared on login but have not been seen to vanish on logout yet.
+    private final Map<String, String> candidateAuthCookies = new ConcurrentHashMap<>();
+
+    private SessionStateTracker() {
+        String configuredNames = System.getProperty("auth.cookieNames", "");
+        for (String name : configuredNames.split(",")) {
+            if (!name.trim().isEmpty()) {
+                authCookies.put(name.trim(), "");
+            }
+        }
+    }
+
+    /**
+     * Get the tracker that is shared by all our page object models.
+     *
+     * @return the JVM wide <code>SessionStateTracker</code>.
+     */
+    public static SessionStateTracker getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Get the login state of the given session without navigating anywhere.
+     *
+     * @param webDriver the session we are interested in.
+     * @return the <code>LoginStateEnum</code> of the session. If it is not
+     * {@link LoginStateEnum#isKnown() known}, the caller has to find out by
+     * itself and {@link #setState(WebDriver, LoginStateEnum) record} the answer.
+     */
+    public LoginStateEnum getState(WebDriver webDriver) {
+        LoginStateEnum state = states.getOrDefault(webDriver, LoginStateEnum.UNKNOWN);
+        if (state.isKnown()) {
+            return state;
+        }
+
+        LoginStateEnum stateFromCookies = readStateFromCookies(webDriver);
+        if (stateFromCookies.isKnown()) {
+            states.put(webDriver, stateFromCookies);
+        }
+        return stateFromCookies;
+    }
+
+    /**
+     * Record the login state of the given session.
+     *
+     * @param webDriver the session whose state changed.
+     * @param state the new state of the session.
+     */
+    public void setState(WebDriver webDriver, LoginStateEnum state) {
+        states.put(webDriver, state);
+    }
+
+    /**
+     * Record that the cookies of the current site have been deleted. If we were
+     * logged out we still are, otherwise we cannot tell, since the cookies of
+     * the other xe.gr domains survive.
+     *
+     * @param webDriver the session whose cookies were deleted.
+     */
+    public void cookiesCleared(WebDriver webDriver) {
+        if (states.get(webDriver) != LoginStateEnum.LOGGED_OUT) {
+            states.put(webDriver, LoginStateEnum.UNKNOWN);
+        }
+    }
+
+    /**
+     * Record that the given session has just logged out, and check which of
+     * the candidate authentication cookies went away with the login.
+     *
+     * @param webDriver the session that logged out, still on the page where
+     * the logout left it.
+     */
+    public void loggedOut(WebDriver webDriver) {
+        states.put(webDriver, LoginStateEnum.LOGGED_OUT);
+        if (candidateAuthCookies.isEmpty()) {
+            return;
+        }
+
+        String host = hostOf(webDriver.getCurrentUrl());
+        Set<String> cookieNames = new HashSet<>();
+        for (Cookie cookie : webDriver.manage().getCookies()) {
+            cookieNames.add(cookie.getName());
+        }
+        for (Map.Entry<String, String> candidate : candidateAuthCookies.entrySet()) {
+            if (!isVisibleFrom(host, candidate.getValue())) {
+                //We cannot see it from here, so we learn nothing about it.
+                continue;
+            }
+            if (!cookieNames.contains(candidate.getKey())) {
+                authCookies.putIfAbsent(candidate.getKey(), candidate.getValue());
+            }
+            candidateAuthCookies.remove(candidate.getKey());
+        }
+    }
+
+    /**
+     * Check whether the given cookie is, or may turn out to be, one of the
+     * cookies that prove we are logged in.
+     *
+     * @param cookie a cookie of a logged in session.
+     * @return <code>true</code> if the cookie is a known or candidate
+     * authentication cookie.
+     */
+    public boolean isAuthCookie(Cookie cookie) {
+        return authCookies.containsKey(cookie.getName()) || candidateAuthCookies.containsKey(cookie.getName());
+    }
+
+    /**
+     * Forget everything about the given session, for instance because it has
+     * been quit.
+     *
+     * @param webDriver the session we no longer care about.
+     */
+    public void forget(WebDriver webDriver) {
+        states.remove(webDriver);
+    }
+
+    /**
+     * Learn which cookies may prove that we are logged in, by comparing the
+     * cookies that we had before and after a successful login. Only session
+     * and HttpOnly cookies are taken, and only as candidates until a
+     * {@link #loggedOut(WebDriver) logout} confirms them.
+     *
+     * @param cookiesBeforeLogin the cookies just before we submitted the login
+     * form.
+     * @param cookiesAfterLogin the cookies right after the login completed.
+     */
+    public void learnAuthCookies(Collection<Cookie> cookiesBeforeLogin, Collection<Cookie> cookiesAfterLogin) {
+        Set<String> namesBeforeLogin = new HashSet<>();
+        for (Cookie cookie : cookiesBeforeLogin) {
+            namesBeforeLogin.add(cookie.getName());
+        }
+        for (Cookie cookie : cookiesAfterLogin) {
+            if (namesBeforeLogin.contains(cookie.getName()) || cookie.getDomain() == null
+                    || authCookies.containsKey(cookie.getName())) {
+                continue;
+            }
+            //Persistent script readable cookies are preferences or tracking, not logins.
+            if (cookie.getExpiry() == null || cookie.isHttpOnly()) {
+                candidateAuthCookies.putIfAbsent(cookie.getName(), cookie.getDomain());
+            }
+        }
+    }
+
+    private LoginStateEnum readStateFromCookies(WebDriver webDriver) {
+        if (authCookies.isEmpty()) {
+            return LoginStateEnum.UNKNOWN;
+        }
+
+        String host = hostOf(webDriver.getCurrentUrl());
+        Set<String> cookieNames = null;
+        boolean anyVisible = false;
+        for (Map.Entry<String, String> authCookie : authCookies.entrySet()) {
+            if (!isVisibleFrom(host, authCookie.getValue())) {
+                continue;
+            }
+            anyVisible = true;
+            if (cookieNames == null) {
+                //One round trip for all the cookies of the page.
+                cookieNames = new HashSet<>();
+                for (Cookie cookie : webDriver.manage().getCookies()) {
+                    cookieNames.add(cookie.getName());
+                }
+            }
+            if (cookieNames.contains(authCookie.getKey())) {
+                return LoginStateEnum.LOGGED_IN;
+            }
+        }
+
+        //If none of the cookies could be seen from here, their absence means nothing.
+        return anyVisible ? LoginStateEnum.LOGGED_OUT : LoginStateEnum.UNKNOWN;
+    }
+
+    private static String hostOf(String url) {
+        try {
+            String host = URI.create(url).getHost();
+            return host == null ? "" : host;
+        } catch (IllegalArgumentException ex) {
+            return "";
+        }
+    }
+
+    private static boolean isVisibleFrom(String host, String cookieDomain) {
+        if (cookieDomain.isEmpty()) {
+            return host.equals(hostOf(SiteUrls.getBaseUrl())) || host.equals(hostOf(SiteUrls.getMyBaseUrl()));
+        }
+        String domain = cookieDomain.startsWith(".") ? cookieDomain.substring(1) : cookieDomain;
+        return host.equals(domain) || host.endsWith("." + domain);
+    }
+}
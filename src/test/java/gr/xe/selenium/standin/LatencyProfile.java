@@ -0,0 +1,103 @@
+package gr.xe.selenium.standin;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The artificial latency that the {@link StandInServer} adds to its responses,
+ * so that we can see how our suite behaves on a slow site without depending on
+ * the real one.
+ *
+ * <p>
+ * A profile is described by a comma separated list of rules in the form
+ * <code>pathPrefix=delayMillis~jitterMillis</code>, for instance
+ * <code>/property/results=400~150,/=50</code>. A request gets the rule with the
+ * longest matching path prefix and is delayed by
+ * <code>delayMillis</code> plus or minus a random amount up to
+ * <code>jitterMillis</code>. The jitter part is optional.
+ *
+ * @author pkalogerop
+ */
+public class LatencyProfile {
+
+    private static final LatencyProfile NONE = new LatencyProfile(Collections.<Rule>emptyList());
+
+    private final List<Rule> rules;
+
+    private LatencyProfile(List<Rule> rules) {
+        this.rules = rules;
+    }
+
+    /**
+     * @return a profile that adds no latency at all.
+     */
+    public static LatencyProfile none() {
+        return NONE;
+    }
+
+    /**
+     * Parse a latency profile.
+     *
+     * @param specification the rules as described in the class documentation.
+     * An empty or <code>null</code> specification means no latency.
+     * @return the parsed <code>LatencyProfile</code>.
+     * @throws IllegalArgumentException if a rule is malformed.
+     */
+    public static LatencyProfile parse(String specification) {
+        if (specification == null || specification.trim().isEmpty()) {
+            return NONE;
+        }
+
+        List<Rule> rules = new ArrayList<>();
+        for (String ruleSpecification : specification.split(",")) {
+            String[] prefixAndTiming = ruleSpecification.trim().split("=");
+            if (prefixAndTiming.length != 2 || !prefixAndTiming[0].startsWith("/")) {
+                throw new IllegalArgumentException("Malformed latency rule: " + ruleSpecification);
+            }
+            String[] delayAndJitter = prefixAndTiming[1].split("~");
+            try {
+                long delay = Long.parseLong(delayAndJitter[0].trim());
+                long jitter = delayAndJitter.length > 1 ? Long.parseLong(delayAndJitter[1].trim()) : 0;
+                rules.add(new Rule(prefixAndTiming[0].trim(), delay, jitter));
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException("Malformed latency rule: " + ruleSpecification, ex);
+            }
+        }
+
+        //The longest prefix comes first, so the first match is the most specific one.
+        rules.sort((first, second) -> second.pathPrefix.length() - first.pathPrefix.length());
+        return new LatencyProfile(Collections.unmodifiableList(rules));
+    }
+
+    /**
+     * Get the delay for a request.
+     *
+     * @param path the path of the request.
+     * @return how many milliseconds we should wait before we respond.
+     */
+    public long delayMillisFor(String path) {
+        for (Rule rule : rules) {
+            if (path.startsWith(rule.pathPrefix)) {
+                long jitter = rule.jitterMillis == 0 ? 0
+                        : ThreadLocalRandom.current().nextLong(-rule.jitterMillis, rule.jitterMillis + 1);
+                return Math.max(0, rule.delayMillis + jitter);
+            }
+        }
+        return 0;
+    }
+
+    private static final class Rule {
+
+        private final String pathPrefix;
+        private final long delayMillis;
+        private final long jitterMillis;
+
+        private Rule(String pathPrefix, long delayMillis, long jitterMillis) {
+            this.pathPrefix = pathPrefix;
+            this.delayMillis = delayMillis;
+            this.jitterMillis = jitterMillis;
+        }
+    }
+}
@@ -0,0 +1,589 @@
+package gr.xe.selenium.standin;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+
+/**
+ * A small HTTP server that stands in for xe.gr, so that the suite can run fast,
+ * offline and deterministically. It serves fixture pages that carry the same
+ * <code>data-testid</code> hooks as the real site, which is all that our Page
+ * Object Models rely on, backed by the listings in
+ * <code>standin/listings.csv</code>.
+ *
+ * <p>
+ * Both the www and the my.xe.gr pages are served from the same host, so
+ * {@link #getBaseUrl() getBaseUrl} is meant to be used for both base urls of
+ * <code>SiteUrls</code>. The logins are checked against our
+ * <code>credentials.csv</code>.
+ *
+ * <p>
+ * The saved searches of the logged in user are kept in memory and can be
+ * listed, created and deleted through <code>/api/saved-searches</code>, which
+ * is also what the save search modal of the results page uses. Like on the
+ * real site, a search that is already saved cannot be saved again: the save
+ * button takes the user to their account instead.
+ *
+ * @author pkalogerop
+ */
+public class StandInServer {
+
+    private static final String SESSION_COOKIE = "xe_session";
+    private static final int MAX_RESULTS_PER_PAGE = 30;
+    private static final String SAVED_SEARCHES_PATH = "/api/saved-searches";
+
+    private final LatencyProfile latencyProfile;
+    private final Map<String, String> templates = new ConcurrentHashMap<>();
+    private final Map<String, String> sessions = new ConcurrentHashMap<>();
+    //The saved searches of every user, by id, in the order they were saved.
+    private final Map<String, Map<String, String>> savedSearches = new ConcurrentHashMap<>();
+    private final List<Listing> listings;
+    private final Map<String, String> credentials;
+
+    private HttpServer httpServer;
+    private ExecutorService executor;
+    private String baseUrl;
+
+    public StandInServer(LatencyProfile latencyProfile) {
+        this.latencyProfile = latencyProfile;
+        this.listings = loadListings();
+        this.credentials = loadCredentials();
+    }
+
+    /**
+     * Start the server on a free local port.
+     *
+     * @return this <code>StandInServer</code>, started.
+     * @throws IOException if we cannot bind the port.
+     */
+    public StandInServer start() throws IOException {
+        return start(0);
+    }
+
+    /**
+     * Start the server on the given local port.
+     *
+     * @param port the port to listen to, <code>0</code> for any free port.
+     * @return this <code>StandInServer</code>, started.
+     * @throws IOException if we cannot bind the port.
+     */
+    public StandInServer start(int port) throws IOException {
+        httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        //Latency is injected by sleeping, so every request needs its own thread.
+        executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "stand-in-server");
+            thread.setDaemon(true);
+            return thread;
+        });
+        httpServer.setExecutor(executor);
+        httpServer.createContext("/", this::handle);
+        httpServer.start();
+
+        baseUrl = "http://" + httpServer.getAddress().getHostString() + ":"
+                + httpServer.getAddress().getPort() + "/";
+        return this;
+    }
+
+    /**
+     * Stop the server, dropping any request in progress.
+     */
+    public void stop() {
+        if (httpServer != null) {
+            httpServer.stop(0);
+            executor.shutdownNow();
+            httpServer = null;
+        }
+    }
+
+    /**
+     * @return the base url of the server, ending with a <code>/</code>.
+     */
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String path = exchange.getRequestURI().getPath();
+            sleep(latencyProfile.delayMillisFor(path));
+            route(exchange, path);
+        } catch (RuntimeException ex) {
+            respond(exchange, 500, "text/plain", "Stand-in server error: " + ex);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void route(HttpExchange exchange, String path) throws IOException {
+        String method = exchange.getRequestMethod();
+
+        if ("/".equals(path)) {
+            respondWithMainPage(exchange, "buy", "re_residence");
+        } else if ("/property/s/poliseis-gis-oikopedon".equals(path)) {
+            respondWithMainPage(exchange, "buy", "re_land");
+        } else if ("/property/results".equals(path)) {
+            respondWithResultsPage(exchange);
+        } else if ("/login".equals(path) && "POST".equals(method)) {
+            logIn(exchange);
+        } else if ("/login".equals(path)) {
+            respondWithLoginPage(exchange, queryParameters(exchange).get("redirect"), "");
+        } else if ("/app/static/start/".equals(path)) {
+            respondWithStartPage(exchange);
+        } else if ("/logoutsso".equals(path) || "/logout".equals(path)) {
+            logOut(exchange);
+        } else if (SAVED_SEARCHES_PATH.equals(path) && "GET".equals(method)) {
+            listSavedSearches(exchange);
+        } else if (SAVED_SEARCHES_PATH.equals(path) && "POST".equals(method)) {
+            createSavedSearch(exchange);
+        } else if (path.startsWith(SAVED_SEARCHES_PATH + "/") && "DELETE".equals(method)) {
+            deleteSavedSearch(exchange, path.substring(SAVED_SEARCHES_PATH.length() + 1));
+        } else if ("/robots.txt".equals(path)) {
+            respond(exchange, 200, "text/plain", "User-agent: *\nDisallow:\n");
+        } else {
+            respond(exchange, 404, "text/plain", "Not found: " + path);
+        }
+    }
+
+    private void respondWithMainPage(HttpExchange exchange, String transaction, String itemType) throws IOException {
+        Map<String, String> values = commonValues();
+        values.put("transaction", transaction);
+        values.put("itemType", itemType);
+        respond(exchange, 200, "text/html", render("main.html", values));
+    }
+
+    private void respondWithResultsPage(HttpExchange exchange) throws IOException {
+        Map<String, String> query = queryParameters(exchange);
+        long minimumPrice = parsePrice(query.get("minimum_price"), 0);
+        long maximumPrice = parsePrice(query.get("maximum_price"), Long.MAX_VALUE);
+
+        StringBuilder results = new StringBuilder();
+        int count = 0;
+        for (Listing listing : listings) {
+            if (count < MAX_RESULTS_PER_PAGE && listing.matches(query, minimumPrice, maximumPrice)) {
+                results.append(listing.toHtml(baseUrl, count++));
+            }
+        }
+        if (count == 0) {
+            results.append("<div data-testid=\"no-results\">Δεν βρέθηκαν αποτελέσματα για την αναζήτησή σου.</div>");
+        }
+
+        String rawQuery = exchange.getRequestURI().getRawQuery();
+        String currentUrl = baseUrl + "property/results" + (rawQuery == null ? "" : "?" + rawQuery);
+
+        String username = loggedInUser(exchange);
+        Map<String, String> values = commonValues();
+        values.put("loggedIn", Boolean.toString(username != null));
+        values.put("savedSearch", Boolean.toString(username != null
+                && savedSearchesOf(username).containsValue(normalizeQuery(rawQuery))));
+        values.put("minimumPrice", escape(query.getOrDefault("minimum_price", "")));
+        values.put("maximumPrice", escape(query.getOrDefault("maximum_price", "")));
+        values.put("encodedCurrentUrl", encode(currentUrl));
+        values.put("results", results.toString());
+        respond(exchange, 200, "text/html", render("results.html", values));
+    }
+
+    private void respondWithLoginPage(HttpExchange exchange, String redirect, String error) throws IOException {
+        Map<String, String> values = commonValues();
+        values.put("redirect", escape(redirect == null ? baseUrl : redirect));
+        values.put("error", escape(error));
+        respond(exchange, 200, "text/html", render("login.html", values));
+    }
+
+    private void respondWithStartPage(HttpExchange exchange) throws IOException {
+        String username = loggedInUser(exchange);
+        if (username == null) {
+            String startUrl = baseUrl + "app/static/start/";
+            redirect(exchange, baseUrl + "login?redirect=" + startUrl);
+            return;
+        }
+        Map<String, String> values = commonValues();
+        values.put("username", escape(username));
+        respond(exchange, 200, "text/html", render("start.html", values));
+    }
+
+    private void logIn(HttpExchange exchange) throws IOException {
+        Map<String, String> form = parseParameters(readBody(exchange));
+        String email = form.getOrDefault("email", "");
+        String redirect = form.get("redirect");
+
+        if (!form.getOrDefault("password", "").equals(credentials.get(email))) {
+            respondWithLoginPage(exchange, redirect, "Λάθος email ή κωδικός.");
+            return;
+        }
+
+        String token = UUID.randomUUID().toString();
+        sessions.put(token, email);
+        exchange.getResponseHeaders().add("Set-Cookie", SESSION_COOKIE + "=" + token + "; Path=/; HttpOnly");
+        //Never redirect outside of our own server.
+        redirect(exchange, redirect != null && redirect.startsWith(baseUrl) ? redirect : baseUrl);
+    }
+
+    private void logOut(HttpExchange exchange) throws IOException {
+        String token = sessionToken(exchange);
+        if (token != null) {
+            sessions.remove(token);
+        }
+        exchange.getResponseHeaders().add("Set-Cookie", SESSION_COOKIE + "=; Path=/; Max-Age=0");
+        redirect(exchange, baseUrl);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void listSavedSearches(HttpExchange exchange) throws IOException {
+        String username = loggedInUser(exchange);
+        if (username == null) {
+            respondNotLoggedIn(exchange);
+            return;
+        }
+        JSONArray list = new JSONArray();
+        Map<String, String> userSearches = savedSearchesOf(username);
+        synchronized (userSearches) {
+            for (Map.Entry<String, String> savedSearch : userSearches.entrySet()) {
+                list.add(savedSearchJson(savedSearch.getKey(), savedSearch.getValue()));
+            }
+        }
+        respond(exchange, 200, "application/json", list.toJSONString());
+    }
+
+    /*
+     * The body is a form with the query of the results url, saving the same
+     * search twice gives back the one that is already saved.
+     */
+    private void createSavedSearch(HttpExchange exchange) throws IOException {
+        String username = loggedInUser(exchange);
+        if (username == null) {
+            respondNotLoggedIn(exchange);
+            return;
+        }
+        String query = normalizeQuery(parseParameters(readBody(exchange)).get("query"));
+        Map<String, String> userSearches = savedSearchesOf(username);
+        synchronized (userSearches) {
+            for (Map.Entry<String, String> savedSearch : userSearches.entrySet()) {
+                if (savedSearch.getValue().equals(query)) {
+                    respond(exchange, 200, "application/json",
+                            savedSearchJson(savedSearch.getKey(), query).toJSONString());
+                    return;
+                }
+            }
+            String id = UUID.randomUUID().toString();
+            userSearches.put(id, query);
+            respond(exchange, 201, "application/json", savedSearchJson(id, query).toJSONString());
+        }
+    }
+
+    private void deleteSavedSearch(HttpExchange exchange, String id) throws IOException {
+        String username = loggedInUser(exchange);
+        if (username == null) {
+            respondNotLoggedIn(exchange);
+            return;
+        }
+        if (savedSearchesOf(username).remove(decode(id)) == null) {
+            respond(exchange, 404, "application/json", errorJson("No saved search " + decode(id)));
+            return;
+        }
+        exchange.sendResponseHeaders(204, -1);
+    }
+
+    private Map<String, String> savedSearchesOf(String username) {
+        return savedSearches.computeIfAbsent(username, user -> Collections.synchronizedMap(new LinkedHashMap<>()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static JSONObject savedSearchJson(String id, String query) {
+        JSONObject savedSearch = new JSONObject();
+        savedSearch.put("id", id);
+        savedSearch.put("query", query);
+        return savedSearch;
+    }
+
+    private static void respondNotLoggedIn(HttpExchange exchange) throws IOException {
+        respond(exchange, 401, "application/json", errorJson("Not logged in"));
+    }
+
+    /*
+     * The same search always has the same query, whatever the order of its
+     * parameters, so that we can tell whether it is already saved.
+     */
+    private static String normalizeQuery(String rawQuery) {
+        Map<String, String> parameters = new TreeMap<>(parseParameters(rawQuery == null ? null
+                : rawQuery.startsWith("?") ? rawQuery.substring(1) : rawQuery));
+        StringBuilder query = new StringBuilder();
+        for (Map.Entry<String, String> parameter : parameters.entrySet()) {
+            if (parameter.getValue().isEmpty()) {
+                continue;
+            }
+            if (query.length() > 0) {
+                query.append('&');
+            }
+            query.append(encode(parameter.getKey())).append('=').append(encode(parameter.getValue()));
+        }
+        return query.toString();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String errorJson(String message) {
+        JSONObject error = new JSONObject();
+        error.put("error", message);
+        return error.toJSONString();
+    }
+
+    private Map<String, String> commonValues() {
+        Map<String, String> values = new HashMap<>();
+        values.put("baseUrl", baseUrl);
+        values.put("myBaseUrl", baseUrl);
+        return values;
+    }
+
+    private String loggedInUser(HttpExchange exchange) {
+        String token = sessionToken(exchange);
+        return token == null ? null : sessions.get(token);
+    }
+
+    private static String sessionToken(HttpExchange exchange) {
+        List<String> cookieHeaders = exchange.getRequestHeaders().get("Cookie");
+        if (cookieHeaders == null) {
+            return null;
+        }
+        for (String cookieHeader : cookieHeaders) {
+            for (String cookie : cookieHeader.split(";")) {
+                String[] nameAndValue = cookie.trim().split("=", 2);
+                if (nameAndValue.length == 2 && SESSION_COOKIE.equals(nameAndValue[0])) {
+                    return nameAndValue[1];
+                }
+            }
+        }
+        return null;
+    }
+
+    private String render(String templateName, Map<String, String> values) {
+        String rendered = templates.computeIfAbsent(templateName, StandInServer::loadTemplate);
+        for (Map.Entry<String, String> value : values.entrySet()) {
+            rendered = rendered.replace("${" + value.getKey() + "}", value.getValue());
+        }
+        return rendered;
+    }
+
+    private static void redirect(HttpExchange exchange, String location) throws IOException {
+        exchange.getResponseHeaders().add("Location", location);
+        exchange.sendResponseHeaders(302, -1);
+    }
+
+    private static void respond(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", contentType + "; charset=utf-8");
+        exchange.getResponseHeaders().add("Cache-Control", "no-store");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream responseBody = exchange.getResponseBody()) {
+            responseBody.write(bytes);
+        }
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (InputStream requestBody = exchange.getRequestBody()) {
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = requestBody.read(buffer)) != -1) {
+                body.write(buffer, 0, read);
+            }
+        }
+        return new String(body.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static Map<String, String> queryParameters(HttpExchange exchange) {
+        return parseParameters(exchange.getRequestURI().getRawQuery());
+    }
+
+    private static Map<String, String> parseParameters(String encoded) {
+        Map<String, String> parameters = new HashMap<>();
+        if (encoded == null || encoded.isEmpty()) {
+            return parameters;
+        }
+        for (String pair : encoded.split("&")) {
+            String[] nameAndValue = pair.split("=", 2);
+            parameters.put(decode(nameAndValue[0]), nameAndValue.length > 1 ? decode(nameAndValue[1]) : "");
+        }
+        return parameters;
+    }
+
+    private static long parsePrice(String price, long defaultPrice) {
+        if (price == null || price.trim().isEmpty()) {
+            return defaultPrice;
+        }
+        try {
+            return Long.parseLong(price.trim());
+        } catch (NumberFormatException ex) {
+            return defaultPrice;
+        }
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String decode(String value) {
+        try {
+            return URLDecoder.decode(value, "UTF-8");
+        } catch (UnsupportedEncodingException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, "UTF-8");
+        } catch (UnsupportedEncodingException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static String escape(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    private static String loadTemplate(String templateName) {
+        return new String(readResource("/standin/" + templateName), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readResource(String resource) {
+        try (InputStream input = StandInServer.class.getResourceAsStream(resource)) {
+            if (input == null) {
+                throw new IllegalStateException("Missing stand-in fixture: " + resource);
+            }
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                content.write(buffer, 0, read);
+            }
+            return content.toByteArray();
+        } catch (IOException ex) {
+            throw new IllegalStateException("Could not read stand-in fixture: " + resource, ex);
+        }
+    }
+
+    private static List<Listing> loadListings() {
+        List<Listing> listings = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new ByteArrayInputStream(readResource("/standin/listings.csv")), StandardCharsets.UTF_8))) {
+            //Omit the first line, it contains headers
+            reader.readLine();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.trim().isEmpty()) {
+                    listings.add(Listing.parse(line));
+                }
+            }
+        } catch (IOException ex) {
+            throw new IllegalStateException("Could not read the stand-in listings.", ex);
+        }
+        return Collections.unmodifiableList(listings);
+    }
+
+    private static Map<String, String> loadCredentials() {
+        Map<String, String> credentials = new HashMap<>();
+        String userDataPath = System.getProperty("user.dir") + "/src/main/config/credentials.csv";
+        try {
+            List<String> lines = Files.readAllLines(Paths.get(userDataPath), StandardCharsets.UTF_8);
+            //Omit the first line, it contains headers
+            for (String line : lines.subList(1, lines.size())) {
+                String[] data = line.trim().split(",");
+                if (data.length == 2) {
+                    credentials.put(data[0], data[1]);
+                }
+            }
+        } catch (IOException ex) {
+            throw new IllegalStateException("Could not read the test credentials from " + userDataPath, ex);
+        }
+        return credentials;
+    }
+
+    private static final class Listing {
+
+        private final String id;
+        private final String transaction;
+        private final String itemType;
+        private final String buildingType;
+        private final String title;
+        private final String area;
+        private final long price;
+
+        private Listing(String id, String transaction, String itemType, String buildingType,
+                String title, String area, long price) {
+            this.id = id;
+            this.transaction = transaction;
+            this.itemType = itemType;
+            this.buildingType = buildingType;
+            this.title = title;
+            this.area = area;
+            this.price = price;
+        }
+
+        private static Listing parse(String line) {
+            String[] data = line.split(",");
+            return new Listing(data[0], data[1], data[2], data[3], data[4], data[5], Long.parseLong(data[6].trim()));
+        }
+
+        private boolean matches(Map<String, String> query, long minimumPrice, long maximumPrice) {
+            return matches(query.get("transaction_name"), transaction)
+                    && matches(query.get("item_type"), itemType)
+                    && matchesAny(query.get("building_type"), buildingType)
+                    && (query.get("geo_place") == null || area.contains(query.get("geo_place")))
+                    && price >= minimumPrice && price <= maximumPrice;
+        }
+
+        private static boolean matches(String wanted, String actual) {
+            return wanted == null || wanted.isEmpty() || wanted.equals(actual);
+        }
+
+        //Building types can be combined, comma separated.
+        private static boolean matchesAny(String wanted, String actual) {
+            return wanted == null || wanted.isEmpty() || Arrays.asList(wanted.split(",")).contains(actual);
+        }
+
+        private String toHtml(String baseUrl, int position) {
+            return "<div class=\"property-ad\" data-testid=\"property-ad-container\" data-position=\"" + position + "\">"
+                    + "<a data-testid=\"property-ad-url\" href=\"" + baseUrl + "property/d/" + id + "\">"
+                    + "<h3 data-testid=\"property-ad-title\">" + escape(title) + "</h3></a>"
+                    + "<span data-testid=\"property-ad-location\">" + escape(area) + "</span> "
+                    + "<span data-testid=\"property-ad-price\">"
+                    + String.format(Locale.GERMANY, "%,d", price) + " €</span>"
+                    + "</div>\n";
+        }
+    }
+}
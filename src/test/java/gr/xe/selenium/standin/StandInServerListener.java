@@ -0,0 +1,53 @@
+package gr.xe.selenium.standin;
+
+import gr.xe.selenium.utilities.SiteUrls;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+
+/**
+ * Starts the {@link StandInServer} before our suite and points all our Page
+ * Object Models to it, when we run with <code>-Dstandin=true</code>. Otherwise
+ * it does nothing and the suite runs against the live site.
+ *
+ * <p>
+ * The server can be tuned with <code>-Dstandin.port</code> (default: any free
+ * port) and <code>-Dstandin.latency</code> (see {@link LatencyProfile}).
+ *
+ * @author pkalogerop
+ */
+public class StandInServerListener implements ISuiteListener {
+
+    private static StandInServer server;
+
+    @Override
+    public void onStart(ISuite suite) {
+        if (!Boolean.getBoolean("standin")) {
+            return;
+        }
+        synchronized (StandInServerListener.class) {
+            if (server != null) {
+                return;
+            }
+            try {
+                server = new StandInServer(LatencyProfile.parse(System.getProperty("standin.latency")))
+                        .start(Integer.getInteger("standin.port", 0));
+            } catch (IOException ex) {
+                throw new UncheckedIOException("Could not start the stand-in server.", ex);
+            }
+            SiteUrls.setBaseUrls(server.getBaseUrl(), server.getBaseUrl());
+            System.out.println("Running against the stand-in server at " + server.getBaseUrl());
+        }
+    }
+
+    @Override
+    public void onFinish(ISuite suite) {
+        synchronized (StandInServerListener.class) {
+            if (server != null) {
+                server.stop();
+                server = null;
+            }
+        }
+    }
+}
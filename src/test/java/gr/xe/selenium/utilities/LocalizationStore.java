@@ -0,0 +1,98 @@
+package gr.xe.selenium.utilities;
+
+import gr.xe.selenium.pom.enums.LocaleEnum;
+import gr.xe.selenium.pom.enums.LocalizationEnum;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+/**
+ * Holds the texts of every localization bundle in memory. The bundles are
+ * read once, the first time any text is asked for, into an array indexed by
+ * the ordinals of <code>LocaleEnum</code> and <code>LocalizationEnum</code>,
+ * so every lookup after that is an array access. The array is never modified
+ * after it is loaded, so any number of tests can read it in parallel.
+ *
+ * @author pkalogerop
+ */
+public final class LocalizationStore {
+
+    private LocalizationStore() {
+    }
+
+    /*
+     * The JVM loads this class, and so our bundles, only when it is first
+     * used, and guarantees that it happens once even if many threads ask at
+     * the same time.
+     */
+    private static final class Holder {
+
+        private static final String[][] TEXTS = loadAllBundles();
+    }
+
+    /**
+     * Get the localized text of the given key.
+     *
+     * @param locale the locale of the text.
+     * @param localizationEnum the text we want.
+     * @return the localized text, or the text of the
+     * {@link LocaleEnum#getDefault() default locale} if the bundle of the
+     * given locale does not have it, or <code>null</code> if neither has it.
+     */
+    public static String getText(LocaleEnum locale, LocalizationEnum localizationEnum) {
+        return Holder.TEXTS[locale.ordinal()][localizationEnum.ordinal()];
+    }
+
+    private static String[][] loadAllBundles() {
+        LocaleEnum[] locales = LocaleEnum.values();
+        LocalizationEnum[] keys = LocalizationEnum.values();
+        String[][] texts = new String[locales.length][keys.length];
+
+        //Load the default locale first, the others fall back to it.
+        LocaleEnum defaultLocale = LocaleEnum.getDefault();
+        loadBundle(defaultLocale, keys, texts[defaultLocale.ordinal()]);
+        for (LocaleEnum locale : locales) {
+            if (locale == defaultLocale) {
+                continue;
+            }
+            String[] localeTexts = texts[locale.ordinal()];
+            loadBundle(locale, keys, localeTexts);
+            for (int i = 0; i < keys.length; i++) {
+                if (localeTexts[i] == null) {
+                    localeTexts[i] = texts[defaultLocale.ordinal()][i];
+                }
+            }
+        }
+        return texts;
+    }
+
+    private static void loadBundle(LocaleEnum locale, LocalizationEnum[] keys, String[] localeTexts) {
+        //Get the json file that contains the localizations
+        File bundle = new File(System.getProperty("user.dir")
+                + "/src/main/localization/" + locale.getBundleFileName());
+        if (!bundle.isFile()) {
+            //No bundle for this locale, it will use the default one.
+            return;
+        }
+
+        JSONObject jsonObject;
+        try (Reader reader = new InputStreamReader(new FileInputStream(bundle), StandardCharsets.UTF_8)) {
+            jsonObject = (JSONObject) new JSONParser().parse(reader);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not read the localization bundle " + bundle, ex);
+        } catch (ParseException ex) {
+            throw new IllegalStateException("The localization bundle " + bundle + " is not valid json", ex);
+        }
+
+        for (LocalizationEnum key : keys) {
+            localeTexts[key.ordinal()] = (String) jsonObject.get(key.getJsonFormat());
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package gr.xe.selenium.utilities;
+
+/**
+ * Turns the prices that xe.gr displays, such as "723.000 €", into numbers. The
+ * site uses the dot as the thousands separator and shows no decimals, so we
+ * simply keep the digits.
+ *
+ * @author pkalogerop
+ */
+public final class PriceParser {
+
+    private PriceParser() {
+    }
+
+    /**
+     * Parse a displayed price.
+     *
+     * @param priceText the price as displayed, such as "723.000 €".
+     * @return the price in euros, or <code>-1</code> if the text contains no
+     * price at all (for instance "Κατόπιν επικοινωνίας").
+     * @throws NumberFormatException if the price is too large to be a
+     * <code>long</code>.
+     */
+    public static long parse(String priceText) {
+        if (priceText == null) {
+            return -1;
+        }
+        long price = 0;
+        boolean foundDigit = false;
+        for (int i = 0; i < priceText.length(); i++) {
+            char character = priceText.charAt(i);
+            if (character >= '0' && character <= '9') {
+                price = Math.addExact(Math.multiplyExact(price, 10), character - '0');
+                foundDigit = true;
+            } else if (character == ',') {
+                //Decimals, if any, do not matter for our filters.
+                break;
+            }
+        }
+        return foundDigit ? price : -1;
+    }
+}
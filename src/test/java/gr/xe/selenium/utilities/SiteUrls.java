@@ -0,0 +1,48 @@
+package gr.xe.selenium.utilities;
+
+/**
+ * This class holds the base urls of the sites that our tests visit. Page
+ * Object Models should build their urls on top of these and never hard code
+ * the xe.gr hosts, so that the whole suite can be pointed to another
+ * environment (for instance our local stand-in server).
+ *
+ * <p>
+ * The urls default to the live site and can be overridden with the
+ * <code>xe.baseUrl</code> and <code>xe.myBaseUrl</code> system properties.
+ * Both must end with a <code>/</code>.
+ *
+ * @author pkalogerop
+ */
+public final class SiteUrls {
+
+    private static volatile String baseUrl = System.getProperty("xe.baseUrl", "https://www.xe.gr/");
+    private static volatile String myBaseUrl = System.getProperty("xe.myBaseUrl", "https://my.xe.gr/");
+
+    private SiteUrls() {
+    }
+
+    /**
+     * @return the base url of the main site, such as https://www.xe.gr/
+     */
+    public static String getBaseUrl() {
+        return baseUrl;
+    }
+
+    /**
+     * @return the base url of the user account site, such as https://my.xe.gr/
+     */
+    public static String getMyBaseUrl() {
+        return myBaseUrl;
+    }
+
+    /**
+     * Point all our Page Object Models to another environment.
+     *
+     * @param newBaseUrl the base url of the main site.
+     * @param newMyBaseUrl the base url of the user account site.
+     */
+    public static void setBaseUrls(String newBaseUrl, String newMyBaseUrl) {
+        baseUrl = newBaseUrl;
+        myBaseUrl = newMyBaseUrl;
+    }
+}
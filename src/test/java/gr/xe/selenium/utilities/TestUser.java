@@ -19,7 +19,9 @@ public class TestUser {
     }
 
     /**
-     * Creates a new <code>TestUser</code>
+     * Creates a new <code>TestUser</code> from the first account of our
+     * credentials file. Tests that may run in parallel should lease an
+     * account from the {@link TestUserPool} instead.
      *
      * @return a properly defined <code>TestUser</code> object
      */
@@ -35,16 +37,17 @@ public class TestUser {
         //Get the data from the file
         String path = System.getProperty("user.dir");
         String userDataPath = path + "/src/main/config/credentials.csv";
-        BufferedReader br = new BufferedReader(new FileReader(userDataPath));
+        try (BufferedReader br = new BufferedReader(new FileReader(userDataPath))) {
 
-        //Ommit the first line, it contains headers
-        br.readLine();
+            //Ommit the first line, it contains headers
+            br.readLine();
 
-        //Get the second row that contains the test user's data
-        String[] data = br.readLine().split(",");
+            //Get the second row that contains the test user's data
+            String[] data = br.readLine().split(",");
 
-        //The username in our file is the first row and the password the second row.
-        testUser = new TestUser(data[0], data[1]);
+            //The username in our file is the first row and the password the second row.
+            testUser = new TestUser(data[0], data[1]);
+        }
 
         return testUser;
     }
@@ -0,0 +1,236 @@
+package gr.xe.selenium.utilities;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openqa.selenium.TimeoutException;
+import org.testng.Reporter;
+
+/**
+ * Hands out the test accounts of our credentials file, one test at a time per
+ * account, so that tests that need a logged in user can run in parallel
+ * without two of them logging in, saving searches and logging out with the
+ * same account.
+ *
+ * <p>
+ * Every row of the credentials file is read once. A test
+ * {@link #lease() leases} an account and gives it back by closing the lease,
+ * ideally with try-with-resources. If every account is taken, the test waits
+ * for one to be returned, up to <code>-Dusers.leaseTimeoutSeconds</code>
+ * (120 by default). No lock is shared between the tests: the free accounts sit
+ * in a lock-free queue and a semaphore counts them.
+ *
+ * @author pkalogerop
+ */
+public class TestUserPool {
+
+    private static volatile TestUserPool instance;
+
+    private final List<TestUser> testUsers;
+    private final ConcurrentLinkedQueue<TestUser> availableUsers;
+    private final Semaphore availablePermits;
+    private final Duration leaseTimeout;
+
+    private final AtomicLong leaseCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    /**
+     * @param testUsers the accounts to hand out.
+     * @param leaseTimeout how long {@link #lease() lease} waits for a free
+     * account.
+     */
+    public TestUserPool(List<TestUser> testUsers, Duration leaseTimeout) {
+        if (testUsers.isEmpty()) {
+            throw new IllegalArgumentException("A test user pool needs at least one test user.");
+        }
+        this.testUsers = Collections.unmodifiableList(new ArrayList<>(testUsers));
+        this.availableUsers = new ConcurrentLinkedQueue<>(testUsers);
+        this.availablePermits = new Semaphore(testUsers.size(), true);
+        this.leaseTimeout = leaseTimeout;
+    }
+
+    /**
+     * Get the pool of the accounts in our credentials file, reading the file
+     * the first time.
+     *
+     * @return the shared <code>TestUserPool</code>.
+     */
+    public static TestUserPool getInstance() {
+        if (instance == null) {
+            synchronized (TestUserPool.class) {
+                if (instance == null) {
+                    instance = new TestUserPool(readCredentialsFile(),
+                            Duration.ofSeconds(Long.getLong("users.leaseTimeoutSeconds", 120)));
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Lease an account, waiting for one to be returned if all of them are
+     * taken.
+     *
+     * @return a <code>Lease</code> of an account that no other test can get
+     * until the lease is closed.
+     * @throws TimeoutException if no account became free in time.
+     * @throws InterruptedException if we were interrupted while waiting.
+     */
+    public Lease lease() throws InterruptedException {
+        return lease(leaseTimeout);
+    }
+
+    /**
+     * Lease an account, waiting up to the given timeout if all of them are
+     * taken.
+     *
+     * @param timeout how long we are willing to wait for a free account.
+     * @return a <code>Lease</code> of an account that no other test can get
+     * until the lease is closed.
+     * @throws TimeoutException if no account became free in time.
+     * @throws InterruptedException if we were interrupted while waiting.
+     */
+    public Lease lease(Duration timeout) throws InterruptedException {
+        long start = System.nanoTime();
+        if (!availablePermits.tryAcquire(timeout.toNanos(), TimeUnit.NANOSECONDS)) {
+            throw new TimeoutException("No test user became available within " + timeout.getSeconds()
+                    + " seconds (the pool has " + testUsers.size() + " test users).");
+        }
+        long waitNanos = System.nanoTime() - start;
+
+        //Holding a permit guarantees that there is a user in the queue for us.
+        TestUser testUser = availableUsers.poll();
+
+        leaseCount.incrementAndGet();
+        totalWaitNanos.addAndGet(waitNanos);
+        long max;
+        while (waitNanos > (max = maxWaitNanos.get()) && !maxWaitNanos.compareAndSet(max, waitNanos)) {
+            //Another thread raised the maximum meanwhile, try again.
+        }
+        //Outside of a test, for instance in a benchmark, the reporter would keep every line forever.
+        if (Reporter.getCurrentTestResult() != null) {
+            Reporter.log("Leased test user " + testUser.getUsername() + " after waiting "
+                    + TimeUnit.NANOSECONDS.toMillis(waitNanos) + " ms");
+        }
+
+        return new Lease(testUser, Duration.ofNanos(waitNanos));
+    }
+
+    /**
+     * @return how many accounts the pool hands out.
+     */
+    public int getSize() {
+        return testUsers.size();
+    }
+
+    /**
+     * @return how many accounts are free right now.
+     */
+    public int getAvailableCount() {
+        return availablePermits.availablePermits();
+    }
+
+    /**
+     * @return how many leases we have handed out so far.
+     */
+    public long getLeaseCount() {
+        return leaseCount.get();
+    }
+
+    /**
+     * @return how long the leases have waited for an account, in total.
+     */
+    public Duration getTotalWaitTime() {
+        return Duration.ofNanos(totalWaitNanos.get());
+    }
+
+    /**
+     * @return the longest that a lease has waited for an account.
+     */
+    public Duration getMaxWaitTime() {
+        return Duration.ofNanos(maxWaitNanos.get());
+    }
+
+    private void giveBack(TestUser testUser) {
+        availableUsers.offer(testUser);
+        availablePermits.release();
+    }
+
+    /*
+     * Every row after the header of our credentials file is an account, with
+     * the username in the first column and the password in the second.
+     */
+    private static List<TestUser> readCredentialsFile() {
+        String userDataPath = System.getProperty("user.dir") + "/src/main/config/credentials.csv";
+        List<TestUser> testUsers = new ArrayList<>();
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(
+                new FileInputStream(userDataPath), StandardCharsets.UTF_8))) {
+            //Ommit the first line, it contains headers
+            br.readLine();
+            String line;
+            while ((line = br.readLine()) != null) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                String[] data = line.split(",");
+                testUsers.add(new TestUser(data[0].trim(), data[1].trim()));
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not read the test users from " + userDataPath, ex);
+        }
+        return testUsers;
+    }
+
+    /**
+     * An account that is exclusively ours until we close the lease.
+     */
+    public final class Lease implements AutoCloseable {
+
+        private final TestUser testUser;
+        private final Duration waitTime;
+        private boolean closed;
+
+        private Lease(TestUser testUser, Duration waitTime) {
+            this.testUser = testUser;
+            this.waitTime = waitTime;
+        }
+
+        /**
+         * @return the leased <code>TestUser</code>.
+         */
+        public TestUser getTestUser() {
+            return testUser;
+        }
+
+        /**
+         * @return how long we waited for the account.
+         */
+        public Duration getWaitTime() {
+            return waitTime;
+        }
+
+        /**
+         * Give the account back to the pool. Closing a lease twice does
+         * nothing.
+         */
+        @Override
+        public synchronized void close() {
+            if (!closed) {
+                closed = true;
+                giveBack(testUser);
+            }
+        }
+    }
+}
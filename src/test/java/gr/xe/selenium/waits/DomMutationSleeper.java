@@ -0,0 +1,120 @@
+package gr.xe.selenium.waits;
+
+import java.time.Duration;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.support.ui.Sleeper;
+
+/**
+ * A <code>Sleeper</code> for our <code>WebDriverWait</code>s that wakes up as
+ * soon as the page changes, instead of always sleeping for the whole polling
+ * interval. Between two checks of a wait condition it waits inside the page,
+ * with an asynchronous script and a <code>MutationObserver</code>, for the DOM
+ * to change. If nothing changes it gives up after a short interval that grows
+ * on every idle sleep (up to the polling interval of the wait), so conditions
+ * that do not depend on the DOM, such as the current url, are still checked
+ * often enough. On the other hand we never wake up more often than every
+ * {@value #MIN_WAKE_INTERVAL_MILLIS}ms, because animated pages change their
+ * attributes on every frame and would otherwise keep us checking the
+ * condition in a tight loop.
+ *
+ * <p>
+ * While the page is navigating no script can run, so in that case we fall
+ * back to a plain sleep of the same interval.
+ *
+ * @author pkalogerop
+ */
+public class DomMutationSleeper implements Sleeper {
+
+    private static final long MIN_BACKOFF_MILLIS = 25;
+    private static final long MIN_WAKE_INTERVAL_MILLIS = 50;
+
+    /*
+    Installs one observer per document that counts mutations, then returns as
+    soon as the count differs from the one we last saw, or after the given
+    timeout. Comparing counts means we also wake for mutations that happened
+    while the condition was being checked, when no script was waiting.
+    */
+    private static final String WAIT_FOR_MUTATION_SCRIPT
+            = "var lastSeen = arguments[0], timeout = arguments[1], done = arguments[arguments.length - 1];"
+            + "var state = window.__xeMutations;"
+            + "if (!state) {"
+            + "  state = window.__xeMutations = {count: 0, listeners: []};"
+            + "  new MutationObserver(function () {"
+            + "    state.count++;"
+            + "    var listeners = state.listeners;"
+            + "    state.listeners = [];"
+            + "    for (var i = 0; i < listeners.length; i++) { listeners[i](); }"
+            + "  }).observe(document, {childList: true, subtree: true, attributes: true, characterData: true});"
+            + "}"
+            + "if (lastSeen >= 0 && state.count !== lastSeen) { done(state.count); return; }"
+            + "var finished = false;"
+            + "var finish = function () { if (!finished) { finished = true; done(state.count); } };"
+            + "state.listeners.push(finish);"
+            + "setTimeout(function () {"
+            + "  var index = state.listeners.indexOf(finish);"
+            + "  if (index >= 0) { state.listeners.splice(index, 1); }"
+            + "  finish();"
+            + "}, timeout);";
+
+    private final WebDriver webDriver;
+    private long backoffMillis = MIN_BACKOFF_MILLIS;
+    private long lastSeenMutations = -1;
+    private long lastWakeNanos = System.nanoTime();
+
+    /**
+     * @param webDriver the browser whose page we watch.
+     */
+    public DomMutationSleeper(WebDriver webDriver) {
+        this.webDriver = webDriver;
+    }
+
+    /**
+     * Sleep until the DOM changes, or for the current backoff interval if it
+     * does not.
+     *
+     * @param pollingInterval the polling interval of the wait, which is the
+     * longest that we will ever sleep.
+     * @throws InterruptedException if we are interrupted while sleeping.
+     */
+    @Override
+    public void sleep(Duration pollingInterval) throws InterruptedException {
+        long timeoutMillis = Math.min(backoffMillis, Math.max(pollingInterval.toMillis(), MIN_BACKOFF_MILLIS));
+        if (!(webDriver instanceof JavascriptExecutor)) {
+            Thread.sleep(timeoutMillis);
+            growBackoff(pollingInterval);
+            return;
+        }
+
+        long mutations;
+        try {
+            Object result = ((JavascriptExecutor) webDriver).executeAsyncScript(
+                    WAIT_FOR_MUTATION_SCRIPT, lastSeenMutations, timeoutMillis);
+            mutations = result instanceof Number ? ((Number) result).longValue() : -1;
+        } catch (WebDriverException ex) {
+            //The page is navigating or the script timed out, sleep the old way.
+            lastSeenMutations = -1;
+            Thread.sleep(timeoutMillis);
+            growBackoff(pollingInterval);
+            return;
+        }
+
+        if (lastSeenMutations >= 0 && mutations != lastSeenMutations) {
+            //The page changed, so it is worth checking again soon, but not sooner than that.
+            backoffMillis = MIN_BACKOFF_MILLIS;
+            long sinceLastWakeMillis = (System.nanoTime() - lastWakeNanos) / 1_000_000;
+            if (sinceLastWakeMillis < MIN_WAKE_INTERVAL_MILLIS) {
+                Thread.sleep(MIN_WAKE_INTERVAL_MILLIS - sinceLastWakeMillis);
+            }
+        } else {
+            growBackoff(pollingInterval);
+        }
+        lastSeenMutations = mutations;
+        lastWakeNanos = System.nanoTime();
+    }
+
+    private void growBackoff(Duration pollingInterval) {
+        backoffMillis = Math.min(backoffMillis * 2, Math.max(pollingInterval.toMillis(), MIN_BACKOFF_MILLIS));
+    }
+}
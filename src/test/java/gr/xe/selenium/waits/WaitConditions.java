@@ -0,0 +1,74 @@
+package gr.xe.selenium.waits;
+
+import java.time.Duration;
+import java.util.List;
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.support.ui.ExpectedCondition;
+
+/**
+ * Wait conditions that Selenium's <code>ExpectedConditions</code> do not
+ * offer.
+ *
+ * @author pkalogerop
+ */
+public final class WaitConditions {
+
+    /*
+    A cheap fingerprint of the matching elements: how many they are and how
+    much markup they hold.
+    */
+    private static final String FINGERPRINT_SCRIPT
+            = "var elements = document.querySelectorAll(arguments[0]), length = 0;"
+            + "for (var i = 0; i < elements.length; i++) { length += elements[i].outerHTML.length; }"
+            + "return elements.length + ':' + length;";
+
+    private WaitConditions() {
+    }
+
+    /**
+     * Wait until at least one element matches the given css selector and the
+     * matching elements have not changed for the given time. Use it for lists
+     * that the page renders in several steps, such as our search results,
+     * where the first result appearing does not mean that the list is
+     * complete.
+     *
+     * <p>
+     * The returned condition remembers what it has seen, so use a new one for
+     * every wait.
+     *
+     * @param cssSelector the css selector of the elements.
+     * @param stableFor how long the elements must stay the same.
+     * @return the matching elements, once stable.
+     */
+    public static ExpectedCondition<List<WebElement>> stableFor(String cssSelector, Duration stableFor) {
+        return new ExpectedCondition<List<WebElement>>() {
+            private String lastFingerprint;
+            private long unchangedSince;
+
+            @Override
+            public List<WebElement> apply(WebDriver driver) {
+                String fingerprint = (String) ((JavascriptExecutor) driver).executeScript(
+                        FINGERPRINT_SCRIPT, cssSelector);
+                long now = System.nanoTime();
+                if (fingerprint.startsWith("0:") || !fingerprint.equals(lastFingerprint)) {
+                    lastFingerprint = fingerprint;
+                    unchangedSince = now;
+                    return null;
+                }
+                if (now - unchangedSince < stableFor.toNanos()) {
+                    return null;
+                }
+                return driver.findElements(By.cssSelector(cssSelector));
+            }
+
+            @Override
+            public String toString() {
+                return "elements located by " + cssSelector + " to stay unchanged for "
+                        + stableFor.toMillis() + " ms";
+            }
+        };
+    }
+}